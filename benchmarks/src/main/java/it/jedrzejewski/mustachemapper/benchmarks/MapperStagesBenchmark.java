@@ -0,0 +1,102 @@
+package it.jedrzejewski.mustachemapper.benchmarks;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.util.MapPathExtractor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of a transform (parse, extract, map, serialize) and the end-to-end call
+ * for both shipped example configurations over synthetic documents of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperStagesBenchmark {
+    
+    private static final TypeReference<Map<String, Object>> SOURCE_TYPE = new TypeReference<>() {};
+    
+    @Param({"1KB", "100KB", "10MB"})
+    public String documentSize;
+    
+    @Param({"mapping-config.json", "multi-source-config.json"})
+    public String config;
+    
+    private JsonStructureMapper mapper;
+    private ObjectMapper objectMapper;
+    private MapPathExtractor pathExtractor;
+    private CompiledMapping mapping;
+    private List<String> jsonPaths;
+    private String sourceJson;
+    private Map<String, Object> sourceData;
+    private Map<String, Object> targetData;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = new JsonStructureMapper();
+        objectMapper = mapper.getObjectMapper();
+        pathExtractor = new MapPathExtractor();
+        
+        Map<String, Object> configMap = SyntheticDocuments.loadResource("/examples/" + config);
+        mapping = mapper.compileMapping(configMap);
+        jsonPaths = new ArrayList<>();
+        mapping.forEachRule(rule -> jsonPaths.addAll(rule.getJsonPaths()));
+        
+        sourceJson = SyntheticDocuments.generate(SyntheticDocuments.parseSize(documentSize));
+        sourceData = objectMapper.readValue(sourceJson, SOURCE_TYPE);
+        targetData = mapper.applyMapping(sourceData, mapping);
+    }
+    
+    @Benchmark
+    public Map<String, Object> parse() throws IOException {
+        return objectMapper.readValue(sourceJson, SOURCE_TYPE);
+    }
+    
+    @Benchmark
+    public void extractPath(Blackhole blackhole) {
+        for (String jsonPath : jsonPaths) {
+            blackhole.consume(pathExtractor.extractPath(sourceData, jsonPath));
+        }
+    }
+    
+    @Benchmark
+    public Map<String, Object> processMapping() {
+        Map<String, Object> target = new HashMap<>();
+        mapper.getMappingProcessor().processMapping(sourceData, target, mapping);
+        return target;
+    }
+    
+    @Benchmark
+    public String serialize() throws IOException {
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(targetData);
+    }
+    
+    @Benchmark
+    public String transformJsonStructure() throws IOException {
+        return mapper.transformJsonStructure(sourceJson, mapping);
+    }
+}
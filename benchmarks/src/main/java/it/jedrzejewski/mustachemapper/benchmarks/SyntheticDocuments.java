@@ -0,0 +1,110 @@
+package it.jedrzejewski.mustachemapper.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds source documents of a given size that satisfy both shipped example configurations.
+ * The document starts from examples/multi-source-data.json and is grown with orders and
+ * recommendations until it reaches the requested size.
+ */
+final class SyntheticDocuments {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private SyntheticDocuments() {
+    }
+    
+    /**
+     * Parse a size label such as 1KB, 100KB or 10MB into bytes
+     */
+    static int parseSize(String size) {
+        String label = size.trim().toUpperCase();
+        if (label.endsWith("MB")) {
+            return Integer.parseInt(label.substring(0, label.length() - 2)) * 1024 * 1024;
+        }
+        if (label.endsWith("KB")) {
+            return Integer.parseInt(label.substring(0, label.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(label);
+    }
+    
+    /**
+     * Generate a JSON document of roughly the requested size in bytes
+     */
+    static String generate(int targetBytes) {
+        try {
+            Map<String, Object> document = loadResource("/examples/multi-source-data.json");
+            addSampleDataFields(document);
+            
+            List<Object> orders = new ArrayList<>();
+            List<Object> recommendations = new ArrayList<>();
+            document.put("orders", orders);
+            document.put("recommendations", recommendations);
+            
+            int baseSize = OBJECT_MAPPER.writeValueAsBytes(document).length;
+            int itemSize = OBJECT_MAPPER.writeValueAsBytes(List.of(order(0), recommendation(0))).length;
+            int items = Math.max(1, (targetBytes - baseSize) / itemSize);
+            
+            for (int i = 0; i < items; i++) {
+                orders.add(order(i));
+                recommendations.add(recommendation(i));
+            }
+            return OBJECT_MAPPER.writeValueAsString(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Load a JSON object shipped with the mapper (e.g. an example configuration)
+     */
+    static Map<String, Object> loadResource(String resource) throws IOException {
+        try (InputStream in = SyntheticDocuments.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + resource);
+            }
+            return OBJECT_MAPPER.readValue(in, new TypeReference<>() {});
+        }
+    }
+    
+    /**
+     * Fields used by examples/mapping-config.json that the multi-source data does not have
+     */
+    @SuppressWarnings("unchecked")
+    private static void addSampleDataFields(Map<String, Object> document) {
+        Map<String, Object> user = (Map<String, Object>) document.get("user");
+        user.put("profile", Map.of("age", 30, "location", "New York"));
+        
+        Map<String, Object> settings = (Map<String, Object>) document.get("settings");
+        settings.put("theme", "dark");
+        settings.put("notifications", true);
+    }
+    
+    private static Map<String, Object> order(int i) {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("orderId", "ORD" + i);
+        order.put("productName", "Product " + i);
+        order.put("quantity", i % 5 + 1);
+        order.put("price", 10.0 + i % 1000 / 10.0);
+        order.put("status", i % 3 == 0 ? "shipped" : "processing");
+        return order;
+    }
+    
+    private static Map<String, Object> recommendation(int i) {
+        Map<String, Object> recommendation = new LinkedHashMap<>();
+        recommendation.put("productId", "REC" + i);
+        recommendation.put("name", "Recommendation " + i);
+        recommendation.put("score", i % 100 / 100.0);
+        recommendation.put("category", "electronics");
+        return recommendation;
+    }
+}
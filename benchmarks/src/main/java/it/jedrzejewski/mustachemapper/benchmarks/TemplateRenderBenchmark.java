@@ -0,0 +1,54 @@
+package it.jedrzejewski.mustachemapper.benchmarks;
+
+import it.jedrzejewski.mustachemapper.template.TemplateEngine;
+import it.jedrzejewski.mustachemapper.template.TemplateRegistry;
+import it.jedrzejewski.mustachemapper.wrapper.MultiSourceDataContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a single item with the default templates, independent of document size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderBenchmark {
+    
+    @Param({"SIMPLE_ORDER", "ORDER_DETAIL", "USER_WITH_STATS"})
+    public String templateName;
+    
+    private TemplateEngine templateEngine;
+    private MultiSourceDataContext context;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        templateEngine = new TemplateEngine(new TemplateRegistry());
+        context = new MultiSourceDataContext(
+            Map.of("orderId", "ORD001", "productName", "Wireless Headphones", "quantity", 1, "price", 99.99,
+                   "status", "shipped", "name", "John Doe", "email", "john.doe@example.com", "membershipLevel", "gold"),
+            Map.of("source2", Map.of("name", "John Doe", "email", "john.doe@example.com",
+                                     "totalOrders", 15, "totalSpent", 1249.87),
+                   "source3", Map.of("language", "en", "currency", "USD")));
+    }
+    
+    @Benchmark
+    public String render() {
+        return templateEngine.render(templateName, context);
+    }
+}
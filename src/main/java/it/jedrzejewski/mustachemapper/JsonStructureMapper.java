@@ -1,49 +1,383 @@
 package it.jedrzejewski.mustachemapper;
 
+import it.jedrzejewski.mustachemapper.batch.BatchResult;
+import it.jedrzejewski.mustachemapper.batch.NdjsonTransformer;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.config.MapperType;
 import it.jedrzejewski.mustachemapper.config.MappingConfiguration;
+import it.jedrzejewski.mustachemapper.config.MappingGroup;
+import it.jedrzejewski.mustachemapper.document.CompactDocument;
+import it.jedrzejewski.mustachemapper.document.SharedSourceDocument;
 import it.jedrzejewski.mustachemapper.mapper.MappingProcessor;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+import it.jedrzejewski.mustachemapper.stream.SelectiveSourceReader;
+import it.jedrzejewski.mustachemapper.stream.StreamingMappingEngine;
+import it.jedrzejewski.mustachemapper.template.RenderedValue;
+import it.jedrzejewski.mustachemapper.template.TemplateCache;
+import it.jedrzejewski.mustachemapper.template.TemplateEngine;
 import it.jedrzejewski.mustachemapper.template.TemplateRegistry;
+import it.jedrzejewski.mustachemapper.transform.Transformer;
+import it.jedrzejewski.mustachemapper.transform.TransformerRegistry;
+import it.jedrzejewski.mustachemapper.util.MappedFileInputStream;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Main facade for JSON structure mapping operations.
  * Orchestrates the mapping process from source JSON to target JSON structure.
+ * A single instance is thread-safe and can be shared by all request threads,
+ * including while templates are registered or replaced.
  */
 @Data
 public class JsonStructureMapper {
     
+    private static final TypeReference<Map<String, Object>> SOURCE_TYPE = new TypeReference<>() {};
+    
     private final ObjectMapper objectMapper;
     private final TemplateRegistry templateRegistry;
+    private final TemplateEngine templateEngine;
+    private final TransformerRegistry transformerRegistry;
     private final MappingProcessor mappingProcessor;
+    private final MapperMetrics metrics;
+    private final SelectiveSourceReader selectiveSourceReader;
+    /**
+     * When true, source documents are read selectively: subtrees no rule references are skipped
+     * on the streaming parser instead of being bound. Results are identical; parse time and heap
+     * drop when mappings read only a small part of large documents.
+     */
+    private volatile boolean selectiveParsing;
+    /**
+     * When true, source documents are read into a {@link CompactDocument} (flat arrays, unboxed
+     * primitives) instead of LinkedHashMap/ArrayList trees. Combines with selective parsing.
+     */
+    private volatile boolean compactDocuments;
+    private final StreamingMappingEngine streamingEngine;
+    /**
+     * When true, transforms evaluate all rules in a single pass over the source parser
+     * with {@link StreamingMappingEngine}: array elements are rendered as they are parsed and
+     * dropped, so large arrays map in constant memory. Output is identical to the other modes,
+     * which also write target keys in configuration order.
+     */
+    private volatile boolean streamingEvaluation;
     
     public JsonStructureMapper() {
+        this(MapperMetrics.NOOP);
+    }
+    
+    /**
+     * Create a mapper reporting parse, extraction, template and serialization timings to the given metrics
+     */
+    public JsonStructureMapper(MapperMetrics metrics) {
+        this.metrics = metrics;
         this.objectMapper = new ObjectMapper();
         this.templateRegistry = new TemplateRegistry();
-        this.mappingProcessor = new MappingProcessor(templateRegistry);
+        this.templateEngine = new TemplateEngine(templateRegistry, TemplateCache.DEFAULT_MAX_SIZE, metrics);
+        this.transformerRegistry = new TransformerRegistry();
+        this.mappingProcessor = new MappingProcessor(templateEngine);
+        this.selectiveSourceReader = new SelectiveSourceReader(objectMapper);
+        this.streamingEngine = new StreamingMappingEngine(objectMapper, templateEngine, mappingProcessor);
     }
     
     /**
      * Transform source JSON to target structure using mapping configuration
-     * 
+     *
      * @param sourceJson Source JSON string
      * @param mappingConfig Configuration defining the target structure
      * @return Transformed JSON string
      */
     public String transformJsonStructure(String sourceJson, Map<String, Object> mappingConfig) throws IOException {
+        return transformJsonStructure(sourceJson, CompiledMapping.compile(new MappingConfiguration(mappingConfig), transformerRegistry));
+    }
+    
+    /**
+     * Transform source JSON to target structure using a precompiled mapping
+     * 
+     * @param sourceJson Source JSON string
+     * @param mapping Mapping compiled with {@link #compileMapping(Map)}
+     * @return Transformed JSON string
+     */
+    public String transformJsonStructure(String sourceJson, CompiledMapping mapping) throws IOException {
+        if (streamingEvaluation) {
+            StringWriter target = new StringWriter();
+            transformJsonStructure(new StringReader(sourceJson), mapping, target);
+            return target.toString();
+        }
+        
         // Convert JSON string to Map
-        Map<String, Object> sourceData = objectMapper.readValue(sourceJson, new TypeReference<>() {});
-        Map<String, Object> targetData = new HashMap<>();
+        Map<String, Object> sourceData;
+        try (JsonParser parser = objectMapper.getFactory().createParser(sourceJson)) {
+            sourceData = readSource(parser, mapping);
+        }
+        
+        Map<String, Object> targetData = applyMapping(sourceData, mapping, isDeferredRendering());
+        
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        String result;
+        try {
+            result = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(targetData);
+        } catch (JsonMappingException e) {
+            throw renderingFailure(e);
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordSerialization(System.nanoTime() - start);
+        }
+        return result;
+    }
+    
+    /**
+     * Transform one source JSON into the target of every mapping of a group, parsing it only once.
+     * The source is read selectively for the merged paths of the group when selective parsing is on,
+     * and paths several rules read are evaluated once. Streaming evaluation does not apply here.
+     *
+     * @return the transformed JSON of each mapping, keyed and ordered as in the group
+     */
+    public Map<String, String> transformJsonStructure(String sourceJson, MappingGroup group) throws IOException {
+        Map<String, Object> sourceData;
+        try (JsonParser parser = objectMapper.getFactory().createParser(sourceJson)) {
+            sourceData = readSource(parser, group.getSourcePaths());
+        }
+        
+        Map<String, String> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> target : applyMappings(sourceData, group, isDeferredRendering()).entrySet()) {
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
+            try {
+                results.put(target.getKey(), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(target.getValue()));
+            } catch (JsonMappingException e) {
+                throw renderingFailure(e);
+            }
+            if (metrics.isEnabled()) {
+                metrics.recordSerialization(System.nanoTime() - start);
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Transform source JSON read from a stream and write the result to a stream.
+     * Neither stream is closed; the source is never materialized as a String.
+     * 
+     * @param source UTF-8 (or auto-detected) encoded source JSON
+     * @param mapping Mapping compiled with {@link #compileMapping(Map)}
+     * @param target Stream receiving the pretty-printed result
+     */
+    public void transformJsonStructure(InputStream source, CompiledMapping mapping, OutputStream target) throws IOException {
+        try (JsonParser parser = createParser(source);
+             JsonGenerator generator = createGenerator(target)) {
+            transformJsonStructure(parser, mapping, generator);
+        }
+    }
+    
+    /**
+     * Transform a source JSON file and write the result to a stream, which is not closed.
+     * The file is memory-mapped and its UTF-8 bytes are parsed straight from the mapping,
+     * so large documents are neither copied into a heap buffer nor decoded to a String first.
+     * Works with every mode: full, selective and compact parsing as well as streaming evaluation.
+     *
+     * @param source Path of the UTF-8 encoded source JSON
+     * @param mapping Mapping compiled with {@link #compileMapping(Map)}
+     * @param target Stream receiving the pretty-printed result
+     */
+    public void transformJsonStructure(Path source, CompiledMapping mapping, OutputStream target) throws IOException {
+        try (InputStream in = new MappedFileInputStream(source)) {
+            transformJsonStructure(in, mapping, target);
+        }
+    }
+    
+    /**
+     * Transform a source JSON file into a target file, created or replaced
+     */
+    public void transformJsonStructure(Path source, CompiledMapping mapping, Path target) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            transformJsonStructure(source, mapping, out);
+        }
+    }
+    
+    /**
+     * Transform source JSON read from a character stream and write the result to a character stream.
+     * Neither the reader nor the writer is closed.
+     */
+    public void transformJsonStructure(Reader source, CompiledMapping mapping, Writer target) throws IOException {
+        try (JsonParser parser = createParser(source);
+             JsonGenerator generator = createGenerator(target)) {
+            transformJsonStructure(parser, mapping, generator);
+        }
+    }
+    
+    /**
+     * Transform the next JSON document of a parser directly into a generator.
+     * The generator is flushed but not closed, and its pretty printer settings are left as configured.
+     */
+    public void transformJsonStructure(JsonParser source, CompiledMapping mapping, JsonGenerator target) throws IOException {
+        if (streamingEvaluation) {
+            streamingEngine.transform(source, mapping, target);
+            return;
+        }
         
-        MappingConfiguration config = new MappingConfiguration(mappingConfig);
-        mappingProcessor.processMapping(sourceData, targetData, config);
+        Map<String, Object> sourceData = readSource(source, mapping);
+        Map<String, Object> targetData = applyMapping(sourceData, mapping, isDeferredRendering());
+        
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        try {
+            objectMapper.writeValue(target, targetData);
+        } catch (JsonMappingException e) {
+            throw renderingFailure(e);
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordSerialization(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Transform a newline-delimited JSON stream, one target document per line.
+     * Neither stream is closed.
+     * 
+     * @return document count and throughput of the run
+     */
+    public BatchResult transformNdjson(InputStream source, CompiledMapping mapping, OutputStream target) throws IOException {
+        return new NdjsonTransformer(this).transform(source, mapping, target);
+    }
+    
+    /**
+     * Read the source document at the parser's current token (or the next one if there is none).
+     * With {@link #setSelectiveParsing(boolean) selective parsing} only the parts the mapping references are bound,
+     * and with {@link #setCompactDocuments(boolean) compact documents} the result is a read-only view.
+     */
+    public Map<String, Object> readSource(JsonParser parser, CompiledMapping mapping) throws IOException {
+        return readSource(parser, mapping.getSourcePaths());
+    }
+    
+    /**
+     * Read the source document, binding only what the given paths reach when selective parsing is on
+     */
+    public Map<String, Object> readSource(JsonParser parser, PathTrie sourcePaths) throws IOException {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Map<String, Object> sourceData;
+        if (compactDocuments) {
+            sourceData = CompactDocument.read(parser, selectiveParsing ? sourcePaths : null).getRoot();
+        } else if (selectiveParsing) {
+            sourceData = selectiveSourceReader.read(parser, sourcePaths);
+        } else {
+            sourceData = objectMapper.readValue(parser, SOURCE_TYPE);
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordParse(System.nanoTime() - start);
+        }
+        return sourceData;
+    }
+    
+    /**
+     * Apply a compiled mapping to an already parsed source document
+     * 
+     * @return the target structure with keys in configuration order, ready to be serialized
+     */
+    public Map<String, Object> applyMapping(Map<String, Object> sourceData, CompiledMapping mapping) {
+        return applyMapping(sourceData, mapping, false);
+    }
+    
+    /**
+     * Apply a compiled mapping, optionally deferring template rendering to serialization.
+     * Deferred MUSTACHE values are {@link RenderedValue}s that render straight into the
+     * JSON generator, so rendered text is never held as intermediate Strings.
+     * 
+     * @param deferRendering true if the result is only going to be serialized with Jackson
+     */
+    public Map<String, Object> applyMapping(Map<String, Object> sourceData, CompiledMapping mapping, boolean deferRendering) {
+        Map<String, Object> targetData = new LinkedHashMap<>();
+        mappingProcessor.processMapping(sourceData, targetData, mapping, deferRendering);
+        return targetData;
+    }
+    
+    /**
+     * Whether transforms leave templates unrendered until serialization. Rendering stays eager while
+     * metrics are enabled, so rule timings include rendering and serialization timings do not.
+     */
+    public boolean isDeferredRendering() {
+        return !metrics.isEnabled();
+    }
+    
+    /**
+     * Unwrap a template or output type failure that Jackson wrapped while serializing deferred values,
+     * so it surfaces as the IllegalArgumentException eager rendering throws. Other failures are returned as is.
+     */
+    public static IOException renderingFailure(JsonMappingException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            throw cause;
+        }
+        return e;
+    }
+    
+    /**
+     * Apply every mapping of a group to an already parsed source document
+     *
+     * @return the target structure of each mapping, keyed and ordered as in the group
+     */
+    public Map<String, Map<String, Object>> applyMappings(Map<String, Object> sourceData, MappingGroup group) {
+        return applyMappings(sourceData, group, false);
+    }
+    
+    /**
+     * Apply every mapping of a group, evaluating the paths they share once
+     *
+     * @param deferRendering true if the results are only going to be serialized with Jackson
+     */
+    public Map<String, Map<String, Object>> applyMappings(Map<String, Object> sourceData, MappingGroup group, boolean deferRendering) {
+        Map<String, Object> source = group.getSharedPaths().isEmpty() ? sourceData : new SharedSourceDocument(sourceData, group.getSharedPaths());
         
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(targetData);
+        Map<String, Map<String, Object>> targets = new LinkedHashMap<>();
+        group.getMappings().forEach((name, mapping) -> targets.put(name, applyMapping(source, mapping, deferRendering)));
+        return targets;
+    }
+    
+    private JsonParser createParser(InputStream source) throws IOException {
+        return objectMapper.getFactory().createParser(source).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+    
+    private JsonParser createParser(Reader source) throws IOException {
+        return objectMapper.getFactory().createParser(source).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+    
+    private JsonGenerator createGenerator(OutputStream target) throws IOException {
+        return objectMapper.getFactory().createGenerator(target)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .useDefaultPrettyPrinter();
+    }
+    
+    private JsonGenerator createGenerator(Writer target) throws IOException {
+        return objectMapper.getFactory().createGenerator(target)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .useDefaultPrettyPrinter();
+    }
+    
+    /**
+     * Compile a mapping configuration once so it can be reused for any number of documents.
+     * Fails fast if a rule is invalid or references a template or transformer that is not registered.
+     */
+    public CompiledMapping compileMapping(Map<String, Object> mappingConfig) {
+        CompiledMapping mapping = CompiledMapping.compile(new MappingConfiguration(mappingConfig), transformerRegistry);
+        mapping.forEachRule(rule -> {
+            if (rule.getMapperType() == MapperType.MUSTACHE) {
+                templateEngine.getCompiledTemplate(rule.getTemplateName());
+            }
+        });
+        return mapping;
     }
     
     /**
@@ -52,4 +386,19 @@ public class JsonStructureMapper {
     public void registerTemplate(String templateName, String templateContent) {
         templateRegistry.addTemplate(templateName, templateContent);
     }
+    
+    /**
+     * Add a custom transformer for TRANSFORM rules. Mappings compiled earlier keep the transformer they resolved.
+     */
+    public void registerTransformer(String transformerName, Transformer transformer) {
+        transformerRegistry.register(transformerName, transformer);
+    }
+    
+    /**
+     * Atomically replace all registered templates (hot reload).
+     * Only templates whose content changed are recompiled.
+     */
+    public void replaceTemplates(Map<String, String> templates) {
+        templateRegistry.replaceTemplates(templates);
+    }
 }
\ No newline at end of file
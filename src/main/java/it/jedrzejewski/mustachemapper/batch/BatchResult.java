@@ -0,0 +1,29 @@
+package it.jedrzejewski.mustachemapper.batch;
+
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a batch transformation run
+ */
+@Data
+public class BatchResult {
+    
+    private final long documentCount;
+    private final long elapsedNanos;
+    
+    /**
+     * Throughput of the run in documents per second
+     */
+    public double getDocumentsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0.0;
+        }
+        return documentCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+    
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+}
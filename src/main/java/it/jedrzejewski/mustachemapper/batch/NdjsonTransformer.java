@@ -0,0 +1,93 @@
+package it.jedrzejewski.mustachemapper.batch;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+import it.jedrzejewski.mustachemapper.util.MappedFileInputStream;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Transforms newline-delimited JSON (NDJSON): one source document per line in,
+ * one compact target document per line out.
+ * A single parser and generator are used for the whole stream and the mapping is compiled once.
+ */
+public class NdjsonTransformer {
+    
+    private final JsonStructureMapper mapper;
+    private final ObjectWriter writer;
+    private final MapperMetrics metrics;
+    
+    public NdjsonTransformer(JsonStructureMapper mapper) {
+        this.mapper = mapper;
+        this.metrics = mapper.getMetrics();
+        this.writer = mapper.getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+    
+    /**
+     * Transform every document of an NDJSON file into another NDJSON file.
+     * The source file is memory-mapped and parsed directly from the mapping.
+     */
+    public BatchResult transform(Path source, CompiledMapping mapping, Path target) throws IOException {
+        try (InputStream in = new MappedFileInputStream(source);
+             OutputStream out = Files.newOutputStream(target)) {
+            return transform(in, mapping, out);
+        }
+    }
+    
+    /**
+     * Transform every document of an NDJSON stream. Neither stream is closed.
+     */
+    public BatchResult transform(InputStream source, CompiledMapping mapping, OutputStream target) throws IOException {
+        ObjectMapper objectMapper = mapper.getObjectMapper();
+        try (JsonParser parser = objectMapper.getFactory().createParser(source)
+                .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(target)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            return transform(parser, mapping, generator);
+        }
+    }
+    
+    /**
+     * Transform every document of a parser, writing one document per line to the generator
+     */
+    public BatchResult transform(JsonParser source, CompiledMapping mapping, JsonGenerator target) throws IOException {
+        long start = System.nanoTime();
+        long documents = 0;
+        
+        // Documents are separated by explicit newlines rather than the default root separator
+        target.setRootValueSeparator(new SerializedString(""));
+        
+        while (source.nextToken() != null) {
+            Map<String, Object> sourceData = mapper.readSource(source, mapping);
+            Map<String, Object> targetData = mapper.applyMapping(sourceData, mapping, mapper.isDeferredRendering());
+            
+            long writeStart = metrics.isEnabled() ? System.nanoTime() : 0;
+            try {
+                writer.writeValue(target, targetData);
+            } catch (JsonMappingException e) {
+                throw JsonStructureMapper.renderingFailure(e);
+            }
+            target.writeRaw('\n');
+            if (metrics.isEnabled()) {
+                metrics.recordSerialization(System.nanoTime() - writeStart);
+            }
+            documents++;
+        }
+        target.flush();
+        
+        return new BatchResult(documents, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,331 @@
+package it.jedrzejewski.mustachemapper.batch;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+import it.jedrzejewski.mustachemapper.util.MappedFileInputStream;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transforms NDJSON streams on an {@link ExecutorService}.
+ * Lines are split on the calling thread as raw UTF-8 bytes; parsing, mapping and serialization of each
+ * document run on the executor. At most {@code maxInFlight} documents are pending at
+ * any time, so memory stays flat regardless of input size. Output is either kept in
+ * input order or written as soon as each document completes.
+ * The executor is owned by the caller and is never shut down by this class.
+ */
+public class ParallelNdjsonTransformer {
+    
+    private final JsonStructureMapper mapper;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final boolean preserveOrder;
+    private final JsonFactory factory;
+    private final ObjectWriter writer;
+    private final MapperMetrics metrics;
+    
+    /**
+     * Create an order preserving transformer with a window of four documents per available processor
+     */
+    public ParallelNdjsonTransformer(JsonStructureMapper mapper, ExecutorService executor) {
+        this(mapper, executor, Runtime.getRuntime().availableProcessors() * 4, true);
+    }
+    
+    public ParallelNdjsonTransformer(JsonStructureMapper mapper, ExecutorService executor, int maxInFlight, boolean preserveOrder) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.mapper = mapper;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.preserveOrder = preserveOrder;
+        this.metrics = mapper.getMetrics();
+        ObjectMapper objectMapper = mapper.getObjectMapper();
+        this.factory = objectMapper.getFactory();
+        this.writer = objectMapper.writer();
+    }
+    
+    /**
+     * Create an executor running every task on its own virtual thread
+     *
+     * @throws UnsupportedOperationException when running on a Java version without virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Looked up reflectively so the library still targets Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer", e);
+        }
+    }
+    
+    /**
+     * Transform every document of an NDJSON file into another NDJSON file.
+     * The source file is memory-mapped and split into lines on its bytes, which are parsed without being decoded to Strings.
+     */
+    public BatchResult transform(Path source, CompiledMapping mapping, Path target) throws IOException {
+        try (InputStream in = new MappedFileInputStream(source);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            return transform(in, mapping, out);
+        }
+    }
+    
+    /**
+     * Transform every document of a UTF-8 NDJSON stream. Neither stream is closed.
+     * Each line is handed to the parser as bytes; no line is decoded to a String. Output is buffered
+     * unless the target already is a {@link BufferedOutputStream}, and flushed at the end.
+     */
+    public BatchResult transform(InputStream source, CompiledMapping mapping, OutputStream target) throws IOException {
+        long start = System.nanoTime();
+        OutputStream out = target instanceof BufferedOutputStream ? target : new BufferedOutputStream(target);
+        LineReader lines = new LineReader(source);
+        Window window = preserveOrder ? new OrderedWindow() : new CompletionWindow(executor);
+        long documents = 0;
+        
+        try {
+            byte[] line;
+            while ((line = lines.readLine()) != null) {
+                if (isBlank(line)) {
+                    continue;
+                }
+                if (window.size() >= maxInFlight) {
+                    writeLine(out, window.next());
+                }
+                window.submit(transformTask(line, mapping));
+                documents++;
+            }
+            while (window.size() > 0) {
+                writeLine(out, window.next());
+            }
+        } finally {
+            window.cancelAll();
+        }
+        out.flush();
+        
+        return new BatchResult(documents, System.nanoTime() - start);
+    }
+    
+    private Callable<byte[]> transformTask(byte[] line, CompiledMapping mapping) {
+        return () -> {
+            try {
+                Map<String, Object> sourceData;
+                try (JsonParser parser = factory.createParser(line)) {
+                    sourceData = mapper.readSource(parser, mapping);
+                }
+                Map<String, Object> targetData = mapper.applyMapping(sourceData, mapping, mapper.isDeferredRendering());
+                
+                long start = metrics.isEnabled() ? System.nanoTime() : 0;
+                byte[] document;
+                try {
+                    document = writer.writeValueAsBytes(targetData);
+                } catch (JsonMappingException e) {
+                    throw JsonStructureMapper.renderingFailure(e);
+                }
+                if (metrics.isEnabled()) {
+                    metrics.recordSerialization(System.nanoTime() - start);
+                }
+                return document;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+    
+    /**
+     * Whether a line holds nothing but JSON whitespace
+     */
+    private static boolean isBlank(byte[] line) {
+        for (byte b : line) {
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void writeLine(OutputStream target, byte[] document) throws IOException {
+        target.write(document);
+        target.write('\n');
+    }
+    
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a document", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("Document transformation failed", cause);
+        }
+    }
+    
+    /**
+     * Splits a stream into lines of undecoded bytes. A trailing carriage return is kept,
+     * as the parser skips it like any other whitespace.
+     */
+    private static final class LineReader {
+        private final InputStream source;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private int limit;
+        
+        LineReader(InputStream source) {
+            this.source = source;
+        }
+        
+        /**
+         * The next line without its newline, or null at the end of the stream
+         */
+        byte[] readLine() throws IOException {
+            ByteArrayOutputStream spanning = null;
+            while (true) {
+                if (position == limit && !fill()) {
+                    return spanning != null ? spanning.toByteArray() : null;
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                if (position < limit) {
+                    int end = position++;
+                    if (spanning == null) {
+                        return Arrays.copyOfRange(buffer, start, end);
+                    }
+                    spanning.write(buffer, start, end - start);
+                    return spanning.toByteArray();
+                }
+                // The line continues past the buffer
+                if (spanning == null) {
+                    spanning = new ByteArrayOutputStream();
+                }
+                spanning.write(buffer, start, position - start);
+            }
+        }
+        
+        private boolean fill() throws IOException {
+            int count = source.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(count, 0);
+            return count > 0;
+        }
+    }
+    
+    // ========== In-flight Windows ==========
+    
+    private interface Window {
+        void submit(Callable<byte[]> task);
+        
+        byte[] next() throws IOException;
+        
+        int size();
+        
+        void cancelAll();
+    }
+    
+    /**
+     * Hands results out in submission order
+     */
+    private class OrderedWindow implements Window {
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        
+        @Override
+        public void submit(Callable<byte[]> task) {
+            pending.addLast(executor.submit(task));
+        }
+        
+        @Override
+        public byte[] next() throws IOException {
+            return await(pending.removeFirst());
+        }
+        
+        @Override
+        public int size() {
+            return pending.size();
+        }
+        
+        @Override
+        public void cancelAll() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+    }
+    
+    /**
+     * Hands results out as soon as they complete
+     */
+    private static class CompletionWindow implements Window {
+        private final CompletionService<byte[]> completionService;
+        private final Set<Future<byte[]>> pending = new HashSet<>();
+        
+        CompletionWindow(ExecutorService executor) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+        }
+        
+        @Override
+        public void submit(Callable<byte[]> task) {
+            pending.add(completionService.submit(task));
+        }
+        
+        @Override
+        public byte[] next() throws IOException {
+            Future<byte[]> completed;
+            try {
+                completed = completionService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a document", e);
+            }
+            pending.remove(completed);
+            return await(completed);
+        }
+        
+        @Override
+        public int size() {
+            return pending.size();
+        }
+        
+        @Override
+        public void cancelAll() {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package it.jedrzejewski.mustachemapper.config;
+
+import it.jedrzejewski.mustachemapper.config.MappingConfiguration.MappingRule;
+import it.jedrzejewski.mustachemapper.transform.Transformer;
+import it.jedrzejewski.mustachemapper.transform.TransformerRegistry;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable execution tree compiled from a {@link MappingConfiguration}.
+ * All rules are parsed and validated once, so applying the mapping to a document
+ * is a plain walk over the nodes and can be repeated for any number of documents.
+ */
+public final class CompiledMapping {
+    
+    /** Resolves TRANSFORM rules of mappings compiled without a registry; never exposed, so never modified */
+    private static final TransformerRegistry BUILT_IN_TRANSFORMERS = new TransformerRegistry();
+    
+    private final List<Node> nodes;
+    /** Built once for the root of a mapping; null for nested groups, which are never read on their own */
+    private final PathTrie sourcePaths;
+    
+    private CompiledMapping(List<Node> nodes, boolean root) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.sourcePaths = root ? collectSourcePaths() : null;
+    }
+    
+    /**
+     * Compile a raw configuration map
+     */
+    public static CompiledMapping compile(Map<String, Object> configMap) {
+        return compile(new MappingConfiguration(configMap));
+    }
+    
+    /**
+     * Compile a mapping configuration, validating every rule
+     */
+    public static CompiledMapping compile(MappingConfiguration config) {
+        return compile(config, BUILT_IN_TRANSFORMERS);
+    }
+    
+    /**
+     * Compile a mapping configuration, resolving the transformers of TRANSFORM rules in the given registry
+     */
+    public static CompiledMapping compile(MappingConfiguration config, TransformerRegistry transformers) {
+        if (config == null || config.getConfigMap() == null) {
+            throw new IllegalArgumentException("Mapping configuration cannot be null");
+        }
+        return new CompiledMapping(compileNodes(config, transformers, config.getConfigMap(), ""), true);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Node> compileNodes(MappingConfiguration config, TransformerRegistry transformers,
+                                           Map<String, Object> configMap, String parentPath) {
+        List<Node> nodes = new ArrayList<>(configMap.size());
+        
+        for (Map.Entry<String, Object> entry : configMap.entrySet()) {
+            String targetKey = entry.getKey();
+            Object configValue = entry.getValue();
+            String targetPath = parentPath.isEmpty() ? targetKey : parentPath + "." + targetKey;
+            
+            if (config.isMappingRule(configValue)) {
+                MappingRule rule = compileRule(config, configValue, targetPath);
+                nodes.add(new Node(targetKey, targetPath, rule, resolveTransformer(rule, transformers, targetPath), null));
+            } else if (configValue instanceof Map) {
+                CompiledMapping children = new CompiledMapping(
+                    compileNodes(config, transformers, (Map<String, Object>) configValue, targetPath), false);
+                nodes.add(new Node(targetKey, targetPath, null, null, children));
+            }
+        }
+        
+        return nodes;
+    }
+    
+    private static MappingRule compileRule(MappingConfiguration config, Object configValue, String targetPath) {
+        Object mapperType = ((Map<?, ?>) configValue).get("mapperType");
+        if (!(mapperType instanceof String)) {
+            throw new IllegalArgumentException("mapperType must be a string at '" + targetPath + "'");
+        }
+        
+        MappingRule rule;
+        try {
+            rule = config.getMappingRule(configValue);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid mapping rule at '" + targetPath + "': " + e.getMessage(), e);
+        }
+        
+        if (rule.getMapperType() == MapperType.MUSTACHE && rule.getTemplateName() == null) {
+            throw new IllegalArgumentException("Template name is required for MUSTACHE mapping at '" + targetPath + "'");
+        }
+        if (rule.getMapperType() == MapperType.COPY && rule.getJsonPaths().isEmpty()) {
+            throw new IllegalArgumentException("jsonPath is required for COPY mapping at '" + targetPath + "'");
+        }
+        if (rule.getMapperType() == MapperType.TRANSFORM
+                && (rule.getTransformerName() == null || rule.getJsonPaths().isEmpty())) {
+            throw new IllegalArgumentException("transformer and jsonPath are required for TRANSFORM mapping at '" + targetPath + "'");
+        }
+        return rule;
+    }
+    
+    private static Transformer resolveTransformer(MappingRule rule, TransformerRegistry transformers, String targetPath) {
+        if (rule.getMapperType() != MapperType.TRANSFORM) {
+            return null;
+        }
+        try {
+            return transformers.resolve(rule.getTransformerName(), rule.getTransformerOptions());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid TRANSFORM mapping at '" + targetPath + "': " + e.getMessage(), e);
+        }
+    }
+    
+    public List<Node> getNodes() {
+        return nodes;
+    }
+    
+    /**
+     * Every part of a source document the rules of this mapping can read.
+     * Precomputed for a compiled mapping; collected on each call for a nested group.
+     */
+    public PathTrie getSourcePaths() {
+        return sourcePaths != null ? sourcePaths : collectSourcePaths();
+    }
+    
+    private PathTrie collectSourcePaths() {
+        List<CompiledPath> paths = new ArrayList<>();
+        forEachRule(rule -> paths.addAll(rule.getPaths()));
+        return PathTrie.of(paths);
+    }
+    
+    /**
+     * Visit every mapping rule in the tree, depth first
+     */
+    public void forEachRule(Consumer<MappingRule> visitor) {
+        for (Node node : nodes) {
+            if (node.isRule()) {
+                visitor.accept(node.getRule());
+            } else {
+                node.getChildren().forEachRule(visitor);
+            }
+        }
+    }
+    
+    /**
+     * A target key bound either to a mapping rule or to a nested group of nodes
+     */
+    @Getter
+    public static final class Node {
+        private final String targetKey;
+        /** Dot separated path of the key from the root of the target document */
+        private final String targetPath;
+        private final MappingRule rule;
+        /** Transformer of a TRANSFORM rule, resolved and configured at compile time */
+        private final Transformer transformer;
+        private final CompiledMapping children;
+        
+        private Node(String targetKey, String targetPath, MappingRule rule, Transformer transformer, CompiledMapping children) {
+            this.targetKey = targetKey;
+            this.targetPath = targetPath;
+            this.rule = rule;
+            this.transformer = transformer;
+            this.children = children;
+        }
+        
+        public boolean isRule() {
+            return rule != null;
+        }
+    }
+}
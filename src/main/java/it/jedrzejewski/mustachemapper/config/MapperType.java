@@ -15,7 +15,7 @@ public enum MapperType {
     COPY,
     
     /**
-     * Custom transformation (extensible)
+     * Typed transformation by a registered {@link it.jedrzejewski.mustachemapper.transform.Transformer}
      */
     TRANSFORM
 }
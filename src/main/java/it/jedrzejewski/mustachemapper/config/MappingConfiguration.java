@@ -1,5 +1,6 @@
 package it.jedrzejewski.mustachemapper.config;
 
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
 import lombok.Data;
 
 import java.util.*;
@@ -46,10 +47,39 @@ public class MappingConfiguration {
         return new MappingRule(
             MapperType.valueOf(((String) ruleMap.get("mapperType")).toUpperCase()),
             (String) ruleMap.get("templateName"),
-            jsonPaths
+            jsonPaths,
+            (String) ruleMap.get("transformer"),
+            extractOptions(ruleMap),
+            extractOutputType(ruleMap)
         );
     }
     
+    /**
+     * Extract the output type of a MUSTACHE rule, string when absent
+     */
+    private OutputType extractOutputType(Map<String, Object> ruleMap) {
+        Object outputType = ruleMap.get("outputType");
+        if (outputType != null && !(outputType instanceof String)) {
+            throw new IllegalArgumentException("outputType must be a string");
+        }
+        return OutputType.of((String) outputType);
+    }
+    
+    /**
+     * Extract the options of a TRANSFORM rule
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> extractOptions(Map<String, Object> ruleMap) {
+        Object options = ruleMap.get("options");
+        if (options == null) {
+            return Collections.emptyMap();
+        }
+        if (!(options instanceof Map)) {
+            throw new IllegalArgumentException("options must be an object");
+        }
+        return (Map<String, Object>) options;
+    }
+    
     /**
      * Extract JSONPath expressions from configuration, handling both single and multiple paths
      */
@@ -74,18 +104,36 @@ public class MappingConfiguration {
     }
     
     /**
-     * Represents a single mapping rule with support for multiple data sources
+     * Represents a single mapping rule with support for multiple data sources.
+     * JSONPath expressions are compiled once when the rule is created.
      */
     @Data
     public static class MappingRule {
         private final MapperType mapperType;
         private final String templateName;
         private final List<String> jsonPaths;
+        private final List<CompiledPath> paths;
+        /** Name of the registered transformer of a TRANSFORM rule */
+        private final String transformerName;
+        private final Map<String, Object> transformerOptions;
+        /** How a MUSTACHE rule writes its rendered output */
+        private final OutputType outputType;
         
         public MappingRule(MapperType mapperType, String templateName, List<String> jsonPaths) {
+            this(mapperType, templateName, jsonPaths, null, null, OutputType.STRING);
+        }
+        
+        public MappingRule(MapperType mapperType, String templateName, List<String> jsonPaths,
+                           String transformerName, Map<String, Object> transformerOptions, OutputType outputType) {
             this.mapperType = mapperType;
             this.templateName = templateName;
-            this.jsonPaths = jsonPaths != null ? jsonPaths : Collections.emptyList();
+            this.jsonPaths = jsonPaths != null ? List.copyOf(jsonPaths) : Collections.emptyList();
+            this.paths = this.jsonPaths.stream()
+                    .map(CompiledPath::compile)
+                    .toList();
+            this.transformerName = transformerName;
+            this.transformerOptions = transformerOptions != null ? transformerOptions : Collections.emptyMap();
+            this.outputType = outputType != null ? outputType : OutputType.STRING;
         }
         
         // Backward compatibility constructor
@@ -99,12 +147,30 @@ public class MappingConfiguration {
             return jsonPaths.isEmpty() ? null : jsonPaths.get(0);
         }
         
+        /**
+         * Get the compiled primary path, or null if the rule has no paths
+         */
+        public CompiledPath getPath() {
+            return paths.isEmpty() ? null : paths.get(0);
+        }
+        
         public boolean hasMultipleSources() {
-            return jsonPaths.size() > 1;
+            return paths.size() > 1;
         }
         
+        /**
+         * Whether the primary path selects an array or several values, each processed separately
+         */
         public boolean isArrayProcessing() {
-            return !jsonPaths.isEmpty() && jsonPaths.get(0).endsWith("[*]");
+            return !paths.isEmpty() && (paths.get(0).endsWithWildcard() || paths.get(0).isMultiValued());
+        }
+        
+        /**
+         * Whether the primary path iterates nested arrays, e.g. {@code $.customers[*].orders[*]}:
+         * each leaf is rendered with its enclosing elements in the template context
+         */
+        public boolean isNestedArrayProcessing() {
+            return !paths.isEmpty() && paths.get(0).isNested();
         }
         
         public String getArrayPath() {
@@ -112,7 +178,7 @@ public class MappingConfiguration {
                 throw new IllegalStateException("Not an array processing rule");
             }
             String firstPath = jsonPaths.get(0);
-            return firstPath.substring(0, firstPath.length() - 3);
+            return firstPath.endsWith("[*]") ? firstPath.substring(0, firstPath.length() - 3) : firstPath;
         }
     }
 }
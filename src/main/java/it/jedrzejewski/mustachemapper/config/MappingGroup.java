@@ -0,0 +1,80 @@
+package it.jedrzejewski.mustachemapper.config;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Several compiled mappings applied together to each source document, such as the client, audit
+ * and analytics views of one event. Their path sets are merged once: the document is read once for
+ * all of them, and paths read by more than one rule are evaluated once per document.
+ */
+public final class MappingGroup {
+    
+    private final Map<String, CompiledMapping> mappings;
+    private final PathTrie sourcePaths;
+    private final Set<CompiledPath> sharedPaths;
+    
+    private MappingGroup(Map<String, CompiledMapping> mappings) {
+        this.mappings = Collections.unmodifiableMap(new LinkedHashMap<>(mappings));
+        
+        List<CompiledPath> paths = new ArrayList<>();
+        for (CompiledMapping mapping : mappings.values()) {
+            mapping.forEachRule(rule -> paths.addAll(rule.getPaths()));
+        }
+        this.sourcePaths = PathTrie.of(paths);
+        
+        Map<CompiledPath, Integer> readers = new HashMap<>();
+        for (CompiledPath path : paths) {
+            readers.merge(path, 1, Integer::sum);
+        }
+        Set<CompiledPath> shared = new HashSet<>();
+        readers.forEach((path, count) -> {
+            if (count > 1) {
+                shared.add(path);
+            }
+        });
+        this.sharedPaths = Collections.unmodifiableSet(shared);
+    }
+    
+    /**
+     * Group mappings by name; results are produced in the iteration order of the given map
+     */
+    public static MappingGroup of(Map<String, CompiledMapping> mappings) {
+        if (mappings == null || mappings.isEmpty()) {
+            throw new IllegalArgumentException("Mapping group needs at least one mapping");
+        }
+        mappings.forEach((name, mapping) -> {
+            if (name == null || mapping == null) {
+                throw new IllegalArgumentException("Mapping group entries need a name and a mapping");
+            }
+        });
+        return new MappingGroup(mappings);
+    }
+    
+    public Map<String, CompiledMapping> getMappings() {
+        return mappings;
+    }
+    
+    /**
+     * Every part of a source document any mapping of the group can read
+     */
+    public PathTrie getSourcePaths() {
+        return sourcePaths;
+    }
+    
+    /**
+     * Paths read by more than one rule of the group, whose results are worth reusing within a document
+     */
+    public Set<CompiledPath> getSharedPaths() {
+        return sharedPaths;
+    }
+}
@@ -0,0 +1,44 @@
+package it.jedrzejewski.mustachemapper.config;
+
+import java.util.Locale;
+
+/**
+ * How the rendered output of a MUSTACHE rule is written into the target document
+ */
+public enum OutputType {
+    /**
+     * JSON string (the default)
+     */
+    STRING,
+    
+    /**
+     * JSON number; the trimmed output must follow the JSON number grammar
+     */
+    NUMBER,
+    
+    /**
+     * JSON boolean; the trimmed output must be {@code true} or {@code false}
+     */
+    BOOLEAN,
+    
+    /**
+     * Raw JSON fragment, written to the output as rendered after a streaming syntax check.
+     * Interpolated values are HTML-escaped by Mustache but not JSON-escaped, so a value with a
+     * quote or backslash inside a JSON string literal makes the output invalid.
+     */
+    JSON;
+    
+    /**
+     * Parse the {@code outputType} of a rule, case-insensitively; null means {@link #STRING}
+     */
+    public static OutputType of(String name) {
+        if (name == null) {
+            return STRING;
+        }
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("outputType must be one of string, number, boolean, json: " + name);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package it.jedrzejewski.mustachemapper.document;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathEvaluable;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Compact, read-only JSON document. Every value is a node in a few flat arrays: numbers and
+ * booleans are stored unboxed, strings in a pool, and the children of each object or array
+ * contiguously with their (parser-interned) field names. Reading a document allocates a handful
+ * of arrays instead of a map or list per JSON object or array.
+ * <p>
+ * The document is exposed through read-only {@link Map} and {@link List} views, so path
+ * extraction, Mustache contexts and serialization work on it unchanged; values are boxed
+ * only when read. {@link CompiledPath}s are evaluated over node indexes directly.
+ */
+public final class CompactDocument {
+    
+    private static final byte OBJECT = 0;
+    private static final byte ARRAY = 1;
+    private static final byte STRING = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte TRUE = 6;
+    private static final byte FALSE = 7;
+    private static final byte NULL = 8;
+    /** BigInteger or BigDecimal, kept in the object pool */
+    private static final byte BIG_NUMBER = 9;
+    
+    /** Objects with more fields than this get a hash index instead of a linear scan */
+    private static final int WIDE_OBJECT_FIELDS = 16;
+    private static final int INITIAL_CAPACITY = 64;
+    
+    // Per node
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    /** Number value, double bits, pool index, or first child position for containers */
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+    private int nodeCount;
+    
+    // Children of containers, contiguous per container
+    private int[] children = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int childCount;
+    
+    private Object[] pool = new Object[INITIAL_CAPACITY];
+    private int poolSize;
+    
+    private final Map<Integer, Map<String, Integer>> wideObjects = new HashMap<>();
+    
+    // Scratch stack collecting the children of open containers while reading
+    private int[] scratchChildren = new int[INITIAL_CAPACITY];
+    private String[] scratchNames = new String[INITIAL_CAPACITY];
+    private int scratchTop;
+    
+    private CompactDocument() {
+    }
+    
+    /**
+     * Read the JSON object at the parser's current token (or the next one)
+     */
+    public static CompactDocument read(JsonParser parser) throws IOException {
+        return read(parser, null);
+    }
+    
+    /**
+     * Read the JSON object at the parser's current token (or the next one),
+     * keeping only what the trie reaches; null keeps everything
+     */
+    public static CompactDocument read(JsonParser parser, PathTrie paths) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token == null) {
+            throw MismatchedInputException.from(parser, Map.class, "No content to map due to end-of-input");
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, Map.class, "Source document must be a JSON object, found " + token);
+        }
+        
+        CompactDocument document = new CompactDocument();
+        document.readValue(parser, token, paths == null || paths.isComplete() ? null : paths);
+        document.scratchChildren = null;
+        document.scratchNames = null;
+        return document;
+    }
+    
+    /**
+     * The root object
+     */
+    public Map<String, Object> getRoot() {
+        return new CompactObject(0);
+    }
+    
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    
+    // ========== Reading ==========
+    
+    /**
+     * Read the value at the current token; a null trie reads everything below it
+     */
+    private int readValue(JsonParser parser, JsonToken token, PathTrie paths) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser, paths);
+            case START_ARRAY:
+                return readArray(parser, paths);
+            case VALUE_STRING:
+                return addPooled(STRING, parser.getText());
+            case VALUE_NUMBER_INT:
+                return readInteger(parser);
+            case VALUE_NUMBER_FLOAT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                    return addPooled(BIG_NUMBER, parser.getDecimalValue());
+                }
+                return addNode(DOUBLE, Double.doubleToRawLongBits(parser.getDoubleValue()), 0);
+            case VALUE_TRUE:
+                return addNode(TRUE, 0, 0);
+            case VALUE_FALSE:
+                return addNode(FALSE, 0, 0);
+            case VALUE_NULL:
+                return addNode(NULL, 0, 0);
+            default:
+                // Embedded objects only come from non-JSON parsers
+                return addPooled(BIG_NUMBER, parser.getEmbeddedObject());
+        }
+    }
+    
+    private int readInteger(JsonParser parser) throws IOException {
+        switch (parser.getNumberType()) {
+            case INT:
+                return addNode(INT, parser.getIntValue(), 0);
+            case LONG:
+                return addNode(LONG, parser.getLongValue(), 0);
+            default:
+                return addPooled(BIG_NUMBER, parser.getBigIntegerValue());
+        }
+    }
+    
+    private int readObject(JsonParser parser, PathTrie paths) throws IOException {
+        int node = addNode(OBJECT, 0, 0);
+        int scratchStart = scratchTop;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            
+            if (paths == null) {
+                pushScratch(name, readValue(parser, valueToken, null));
+                continue;
+            }
+            PathTrie child = paths.field(name);
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                pushScratch(name, readValue(parser, valueToken, child.isComplete() ? null : child));
+            }
+        }
+        
+        closeContainer(node, scratchStart);
+        if (sizes[node] > WIDE_OBJECT_FIELDS) {
+            indexWideObject(node);
+        }
+        return node;
+    }
+    
+    private int readArray(JsonParser parser, PathTrie paths) throws IOException {
+        int node = addNode(ARRAY, 0, 0);
+        int scratchStart = scratchTop;
+        int lastIndex = paths == null ? Integer.MAX_VALUE : paths.lastElementIndex();
+        int index = 0;
+        JsonToken token;
+        
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (paths == null) {
+                pushScratch(null, readValue(parser, token, null));
+                index++;
+                continue;
+            }
+            PathTrie child = index <= lastIndex ? paths.element(index) : null;
+            if (child == null) {
+                parser.skipChildren();
+                if (index < lastIndex) {
+                    // Placeholder keeps later referenced elements at their index
+                    pushScratch(null, addNode(NULL, 0, 0));
+                }
+            } else {
+                pushScratch(null, readValue(parser, token, child.isComplete() ? null : child));
+            }
+            index++;
+        }
+        
+        closeContainer(node, scratchStart);
+        return node;
+    }
+    
+    private int addNode(byte type, long value, int size) {
+        if (nodeCount == types.length) {
+            int capacity = nodeCount * 2;
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        types[nodeCount] = type;
+        values[nodeCount] = value;
+        sizes[nodeCount] = size;
+        return nodeCount++;
+    }
+    
+    private int addPooled(byte type, Object value) {
+        if (poolSize == pool.length) {
+            pool = Arrays.copyOf(pool, poolSize * 2);
+        }
+        pool[poolSize] = value;
+        return addNode(type, poolSize++, 0);
+    }
+    
+    private void pushScratch(String name, int node) {
+        if (scratchTop == scratchChildren.length) {
+            scratchChildren = Arrays.copyOf(scratchChildren, scratchTop * 2);
+            scratchNames = Arrays.copyOf(scratchNames, scratchTop * 2);
+        }
+        scratchChildren[scratchTop] = node;
+        scratchNames[scratchTop] = name;
+        scratchTop++;
+    }
+    
+    /**
+     * Move the children collected since scratchStart into the contiguous children arrays
+     */
+    private void closeContainer(int node, int scratchStart) {
+        int count = scratchTop - scratchStart;
+        if (childCount + count > children.length) {
+            int capacity = Math.max(childCount + count, children.length * 2);
+            children = Arrays.copyOf(children, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        System.arraycopy(scratchChildren, scratchStart, children, childCount, count);
+        System.arraycopy(scratchNames, scratchStart, names, childCount, count);
+        Arrays.fill(scratchNames, scratchStart, scratchTop, null);
+        
+        values[node] = childCount;
+        sizes[node] = count;
+        childCount += count;
+        scratchTop = scratchStart;
+    }
+    
+    private void indexWideObject(int node) {
+        int start = (int) values[node];
+        Map<String, Integer> index = new HashMap<>(sizes[node] * 2);
+        for (int i = start; i < start + sizes[node]; i++) {
+            index.put(names[i], children[i]);
+        }
+        wideObjects.put(node, index);
+    }
+    
+    // ========== Navigation ==========
+    
+    /**
+     * Node of an object field, or -1. With duplicate keys the last one wins, as with Jackson binding.
+     */
+    private int field(int object, String name) {
+        int size = sizes[object];
+        if (size > WIDE_OBJECT_FIELDS) {
+            Integer child = wideObjects.get(object).get(name);
+            return child != null ? child : -1;
+        }
+        int start = (int) values[object];
+        for (int i = start + size - 1; i >= start; i--) {
+            String candidate = names[i];
+            if (candidate == name || candidate.equals(name)) {
+                return children[i];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Whether the field at a child position is hidden by a later field of the same name
+     */
+    private boolean isShadowed(int object, int position) {
+        return field(object, names[position]) != children[position];
+    }
+    
+    /**
+     * Number of distinct field names of an object
+     */
+    private int visibleSize(int object) {
+        int size = sizes[object];
+        if (size > WIDE_OBJECT_FIELDS) {
+            return wideObjects.get(object).size();
+        }
+        int start = (int) values[object];
+        int visible = 0;
+        for (int i = start; i < start + size; i++) {
+            if (!isShadowed(object, i)) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+    
+    private Object value(int node) {
+        switch (types[node]) {
+            case OBJECT:
+                return new CompactObject(node);
+            case ARRAY:
+                return new CompactArray(node);
+            case STRING:
+            case BIG_NUMBER:
+                return pool[(int) values[node]];
+            case INT:
+                return (int) values[node];
+            case LONG:
+                return values[node];
+            case DOUBLE:
+                return Double.longBitsToDouble(values[node]);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+    
+    private Object evaluate(int node, CompiledPath path) {
+        int current = node;
+        int stepCount = path.getEvaluatedStepCount();
+        
+        for (int i = 0; i < stepCount; i++) {
+            CompiledPath.Step step = path.getStep(i);
+            switch (step.getKind()) {
+                case FIELD:
+                    current = types[current] == OBJECT ? field(current, step.getName()) : -1;
+                    break;
+                case INDEX:
+                    int index = step.getIndex();
+                    current = types[current] == ARRAY && index >= 0 && index < sizes[current]
+                        ? children[(int) values[current] + index] : -1;
+                    break;
+                default:
+                    // Steps without an index-based form are applied to the views
+                    return path.evaluateFrom(value(current), i);
+            }
+            if (current < 0) {
+                // Null, or no matches for a multi-valued path
+                return path.evaluateFrom(null, i);
+            }
+        }
+        return value(current);
+    }
+    
+    // ========== Views ==========
+    
+    /**
+     * Read-only map view of an object node
+     */
+    private final class CompactObject extends AbstractMap<String, Object> implements PathEvaluable {
+        private final int node;
+        
+        CompactObject(int node) {
+            this.node = node;
+        }
+        
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String name)) {
+                return null;
+            }
+            int child = field(node, name);
+            return child < 0 ? null : value(child);
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String name && field(node, name) >= 0;
+        }
+        
+        @Override
+        public int size() {
+            return visibleSize(node);
+        }
+        
+        @Override
+        public Object evaluatePath(CompiledPath path) {
+            return evaluate(node, path);
+        }
+        
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    int start = (int) values[node];
+                    int end = start + sizes[node];
+                    return new Iterator<>() {
+                        private int position = skipShadowed(start);
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return position < end;
+                        }
+                        
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (position >= end) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = position;
+                            position = skipShadowed(i + 1);
+                            return new SimpleImmutableEntry<>(names[i], value(children[i]));
+                        }
+                        
+                        private int skipShadowed(int from) {
+                            int i = from;
+                            while (i < end && isShadowed(node, i)) {
+                                i++;
+                            }
+                            return i;
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return visibleSize(node);
+                }
+            };
+        }
+    }
+    
+    /**
+     * Read-only list view of an array node
+     */
+    private final class CompactArray extends AbstractList<Object> implements RandomAccess, PathEvaluable {
+        private final int node;
+        
+        CompactArray(int node) {
+            this.node = node;
+        }
+        
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= sizes[node]) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + sizes[node]);
+            }
+            return value(children[(int) values[node] + index]);
+        }
+        
+        @Override
+        public int size() {
+            return sizes[node];
+        }
+        
+        @Override
+        public Object evaluatePath(CompiledPath path) {
+            return evaluate(node, path);
+        }
+    }
+}
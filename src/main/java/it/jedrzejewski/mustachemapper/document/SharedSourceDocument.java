@@ -0,0 +1,61 @@
+package it.jedrzejewski.mustachemapper.document;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathEvaluable;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of a parsed source document that several mappings are applied to.
+ * Paths in the shared set are evaluated once, on first use, and their results are reused
+ * by every later rule; other paths are evaluated on the underlying document as usual.
+ * An instance belongs to one document and one thread.
+ */
+public final class SharedSourceDocument extends AbstractMap<String, Object> implements PathEvaluable {
+    
+    private final Map<String, Object> source;
+    private final Set<CompiledPath> sharedPaths;
+    private final Map<CompiledPath, Object> results = new HashMap<>();
+    
+    public SharedSourceDocument(Map<String, Object> source, Set<CompiledPath> sharedPaths) {
+        this.source = source;
+        this.sharedPaths = sharedPaths;
+    }
+    
+    @Override
+    public Object evaluatePath(CompiledPath path) {
+        if (!sharedPaths.contains(path)) {
+            return path.evaluate(source);
+        }
+        Object result = results.get(path);
+        if (result == null && !results.containsKey(path)) {
+            result = path.evaluate(source);
+            results.put(path, result);
+        }
+        return result;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        return source.get(key);
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return source.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return source.size();
+    }
+    
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return Collections.unmodifiableMap(source).entrySet();
+    }
+}
@@ -1,10 +1,13 @@
 package it.jedrzejewski.mustachemapper.mapper;
 
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
 import it.jedrzejewski.mustachemapper.config.MappingConfiguration;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+import it.jedrzejewski.mustachemapper.template.TemplateEngine;
 import it.jedrzejewski.mustachemapper.template.TemplateRegistry;
 import it.jedrzejewski.mustachemapper.util.MapPathExtractor;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -15,51 +18,89 @@ public class MappingProcessor {
     private final MapPathExtractor mapPathExtractor;
     private final MustacheMapper mustacheMapper;
     private final CopyMapper copyMapper;
+    private final TransformMapper transformMapper;
+    private final MapperMetrics metrics;
     
     public MappingProcessor(TemplateRegistry templateRegistry) {
-        this.mapPathExtractor = new MapPathExtractor();
-        this.mustacheMapper = new MustacheMapper(templateRegistry);
+        this(new TemplateEngine(templateRegistry));
+    }
+    
+    public MappingProcessor(TemplateEngine templateEngine) {
+        this.metrics = templateEngine.getMetrics();
+        this.mapPathExtractor = new MapPathExtractor(metrics);
+        this.mustacheMapper = new MustacheMapper(templateEngine);
         this.copyMapper = new CopyMapper();
+        this.transformMapper = new TransformMapper(mapPathExtractor);
     }
     
     /**
      * Process the entire mapping configuration
      */
-    @SuppressWarnings("unchecked")
     public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, MappingConfiguration config) {
-        for (Map.Entry<String, Object> entry : config.getConfigMap().entrySet()) {
-            String targetKey = entry.getKey();
-            Object configValue = entry.getValue();
-            
-            if (config.isMappingRule(configValue)) {
-                processMappingRule(sourceData, targetData, targetKey, config.getMappingRule(configValue));
-            } else if (configValue instanceof Map) {
+        processMapping(sourceData, targetData, CompiledMapping.compile(config));
+    }
+    
+    /**
+     * Apply a precompiled mapping to a single document. Nested groups are created as
+     * LinkedHashMaps, so target keys keep configuration order.
+     */
+    public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, CompiledMapping mapping) {
+        processMapping(sourceData, targetData, mapping, false);
+    }
+    
+    /**
+     * Apply a precompiled mapping, optionally leaving MUSTACHE values unrendered until the target is serialized.
+     * With deferred rendering, rule timings no longer include template rendering, which is why
+     * the mapper facade only defers while metrics are disabled.
+     */
+    public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, CompiledMapping mapping,
+                               boolean deferRendering) {
+        for (CompiledMapping.Node node : mapping.getNodes()) {
+            if (node.isRule()) {
+                processNode(sourceData, targetData, node, deferRendering);
+            } else {
                 // Nested configuration
-                Map<String, Object> nestedTarget = new HashMap<>();
-                MappingConfiguration nestedConfig = new MappingConfiguration((Map<String, Object>) configValue);
-                processMapping(sourceData, nestedTarget, nestedConfig);
-                targetData.put(targetKey, nestedTarget);
+                Map<String, Object> nestedTarget = new LinkedHashMap<>();
+                processMapping(sourceData, nestedTarget, node.getChildren(), deferRendering);
+                targetData.put(node.getTargetKey(), nestedTarget);
             }
         }
     }
     
+    /**
+     * Apply the rule of a single node, putting its value (if any) under the node's target key
+     */
+    public void processNode(Map<String, Object> sourceData, Map<String, Object> targetData, CompiledMapping.Node node,
+                            boolean deferRendering) {
+        if (!metrics.isEnabled()) {
+            processMappingRule(sourceData, targetData, node, deferRendering);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        processMappingRule(sourceData, targetData, node, deferRendering);
+        metrics.recordRule(node.getTargetPath(), System.nanoTime() - start);
+    }
+    
     /**
      * Process a single mapping rule
      */
-    private void processMappingRule(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey, 
-                                   MappingConfiguration.MappingRule rule) {
+    private void processMappingRule(Map<String, Object> sourceData, Map<String, Object> targetData, CompiledMapping.Node node,
+                                   boolean deferRendering) {
+        String targetKey = node.getTargetKey();
+        MappingConfiguration.MappingRule rule = node.getRule();
         
         switch (rule.getMapperType()) {
             case MUSTACHE:
-                mustacheMapper.processMapping(sourceData, targetData, targetKey, rule);
+                mustacheMapper.processMapping(sourceData, targetData, targetKey, rule, deferRendering);
                 break;
             case COPY:
-                Object extractedData = mapPathExtractor.extractPath(sourceData, rule.getJsonPath());
+                Object extractedData = mapPathExtractor.extract(sourceData, rule.getPath());
                 copyMapper.processMapping(extractedData, targetData, targetKey);
                 break;
             case TRANSFORM:
-                // Reserved for future custom transformations
-                throw new UnsupportedOperationException("TRANSFORM mapper not implemented yet");
+                transformMapper.processMapping(sourceData, targetData, targetKey, rule, node.getTransformer());
+                break;
         }
     }
 }
\ No newline at end of file
@@ -1,14 +1,23 @@
 package it.jedrzejewski.mustachemapper.mapper;
 
 import it.jedrzejewski.mustachemapper.config.MappingConfiguration.MappingRule;
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import it.jedrzejewski.mustachemapper.template.RenderedSequence;
+import it.jedrzejewski.mustachemapper.template.RenderedValue;
 import it.jedrzejewski.mustachemapper.template.TemplateEngine;
 import it.jedrzejewski.mustachemapper.template.TemplateRegistry;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
 import it.jedrzejewski.mustachemapper.util.MapPathExtractor;
 import it.jedrzejewski.mustachemapper.wrapper.MultiSourceDataContext;
+import it.jedrzejewski.mustachemapper.wrapper.NestedItemContext;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Handles Mustache template processing with support for single and multiple data sources
@@ -20,17 +29,31 @@ public class MustacheMapper {
     private final MapPathExtractor pathExtractor;
     
     public MustacheMapper(TemplateRegistry templateRegistry) {
-        this.templateEngine = new TemplateEngine(templateRegistry);
-        this.pathExtractor = new MapPathExtractor();
+        this(new TemplateEngine(templateRegistry));
+    }
+    
+    public MustacheMapper(TemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+        this.pathExtractor = new MapPathExtractor(templateEngine.getMetrics());
     }
     
     /**
      * Main entry point for processing mapping rules
      */
     public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey, MappingRule rule) {
+        processMapping(sourceData, targetData, targetKey, rule, false);
+    }
+    
+    /**
+     * Process a mapping rule, optionally deferring rendering until the target is serialized.
+     * Deferred values are {@link RenderedValue}s, and array results {@link RenderedSequence}s,
+     * that render straight into the JSON generator.
+     */
+    public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey, MappingRule rule,
+                               boolean deferRendering) {
         validateRule(rule);
         
-        MappingRequest request = new MappingRequest(sourceData, targetData, targetKey, rule);
+        MappingRequest request = new MappingRequest(sourceData, targetData, targetKey, rule, deferRendering);
         
         if (rule.hasMultipleSources()) {
             processMultiSourceMapping(request);
@@ -42,7 +65,12 @@ public class MustacheMapper {
     // ========== Single Source Processing ==========
     
     private void processSingleSourceMapping(MappingRequest request) {
-        Object extractedData = pathExtractor.extractPath(request.sourceData, request.rule.getJsonPath());
+        if (request.rule.isNestedArrayProcessing()) {
+            putArrayResults(request, matches(request), match -> new NestedItemContext((CompiledPath.Match) match));
+            return;
+        }
+        
+        Object extractedData = pathExtractor.extract(request.sourceData, request.rule.getPath());
         if (extractedData == null) {
             return;
         }
@@ -55,21 +83,11 @@ public class MustacheMapper {
     }
     
     private void processArrayData(List<?> arrayData, MappingRequest request) {
-        List<String> results = new ArrayList<>();
-        
-        for (Object item : arrayData) {
-            Map<String, Object> context = convertToMap(item);
-            String rendered = templateEngine.render(request.rule.getTemplateName(), context);
-            results.add(rendered);
-        }
-        
-        request.targetData.put(request.targetKey, results);
+        putArrayResults(request, arrayData, this::convertToMap);
     }
     
     private void processSingleData(Object data, MappingRequest request) {
-        Map<String, Object> context = convertToMap(data);
-        String rendered = templateEngine.render(request.rule.getTemplateName(), context);
-        request.targetData.put(request.targetKey, rendered);
+        request.targetData.put(request.targetKey, render(request, convertToMap(data)));
     }
     
     // ========== Multi Source Processing ==========
@@ -83,83 +101,141 @@ public class MustacheMapper {
     }
     
     private void processMultiSourceArray(MappingRequest request) {
-        List<String> jsonPaths = request.rule.getJsonPaths();
-        Object primaryArrayData = pathExtractor.extractPath(request.sourceData, jsonPaths.get(0));
-        
-        if (!(primaryArrayData instanceof List)) {
+        List<CompiledPath> jsonPaths = request.rule.getPaths();
+        if (request.rule.isNestedArrayProcessing()) {
+            Map<String, Object> secondarySources = extractSecondarySources(request.sourceData, jsonPaths);
+            putArrayResults(request, matches(request),
+                match -> createMultiSourceContext(new NestedItemContext((CompiledPath.Match) match), secondarySources));
             return;
         }
         
-        List<String> results = new ArrayList<>();
-        List<?> arrayList = (List<?>) primaryArrayData;
+        Object primaryArrayData = pathExtractor.extract(request.sourceData, jsonPaths.get(0));
         
-        for (Object arrayItem : arrayList) {
-            MultiSourceDataContext context = createMultiSourceContext(request.sourceData, jsonPaths, arrayItem);
-            String rendered = templateEngine.render(request.rule.getTemplateName(), context);
-            results.add(rendered);
+        if (!(primaryArrayData instanceof List)) {
+            return;
         }
         
-        request.targetData.put(request.targetKey, results);
+        // Secondary sources cannot change between items, so they are resolved once per rule
+        Map<String, Object> secondarySources = extractSecondarySources(request.sourceData, jsonPaths);
+        putArrayResults(request, (List<?>) primaryArrayData, item -> createMultiSourceContext(item, secondarySources));
     }
     
     private void processMultiSourceSingle(MappingRequest request) {
-        MultiSourceDataContext context = createMultiSourceContext(request.sourceData, request.rule.getJsonPaths(), null);
-        String rendered = templateEngine.render(request.rule.getTemplateName(), context);
-        request.targetData.put(request.targetKey, rendered);
+        List<CompiledPath> jsonPaths = request.rule.getPaths();
+        Object primaryData = pathExtractor.extract(request.sourceData, jsonPaths.get(0));
+        
+        MultiSourceDataContext context = createMultiSourceContext(primaryData, extractSecondarySources(request.sourceData, jsonPaths));
+        request.targetData.put(request.targetKey, render(request, context));
     }
     
     // ========== Context Creation ==========
     
-    private MultiSourceDataContext createMultiSourceContext(Map<String, Object> sourceData, List<String> jsonPaths, Object primaryItem) {
-        MultiSourceDataContext context = new MultiSourceDataContext();
+    /**
+     * Resolve the secondary sources of a rule against a source document, keyed source2..N
+     */
+    public Map<String, Object> resolveSecondarySources(Map<String, Object> sourceData, MappingRule rule) {
+        return extractSecondarySources(sourceData, rule.getPaths());
+    }
+    
+    /**
+     * Create the template context for one element of an array rule
+     */
+    public Object createItemContext(MappingRule rule, Object item, Map<String, Object> secondarySources) {
+        return rule.hasMultipleSources() ? createMultiSourceContext(item, secondarySources) : convertToMap(item);
+    }
+    
+    /**
+     * Resolve every secondary path once, keyed as source2..N
+     */
+    private Map<String, Object> extractSecondarySources(Map<String, Object> sourceData, List<CompiledPath> jsonPaths) {
+        Map<String, Object> sources = new HashMap<>();
         
-        for (int i = 0; i < jsonPaths.size(); i++) {
-            Object extractedData = extractDataForSource(sourceData, jsonPaths.get(i), i == 0 ? primaryItem : null);
+        for (int i = 1; i < jsonPaths.size(); i++) {
+            Object extractedData = pathExtractor.extract(sourceData, jsonPaths.get(i));
             
             if (extractedData != null) {
-                addDataToContext(context, extractedData, i);
+                sources.put(sourceKey(i), extractedData instanceof Map ? extractedData : Map.of(VALUE, extractedData));
             }
         }
         
-        return context;
-    }
-    
-    private Object extractDataForSource(Map<String, Object> sourceData, String jsonPath, Object primaryItem) {
-        return primaryItem != null ? primaryItem : pathExtractor.extractPath(sourceData, jsonPath);
+        return sources;
     }
     
-    private void addDataToContext(MultiSourceDataContext context, Object data, int sourceIndex) {
-        if (sourceIndex == 0) {
-            addPrimaryData(context, data);
+    /**
+     * Create a context viewing the primary item and the shared secondary sources, without copying either
+     */
+    private MultiSourceDataContext createMultiSourceContext(Object primaryItem, Map<String, Object> secondarySources) {
+        Map<String, ?> primary;
+        if (primaryItem instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> mapData = (Map<String, Object>) primaryItem;
+            primary = mapData;
         } else {
-            addSecondaryData(context, data, sourceIndex);
+            primary = primaryItem != null ? Map.of(VALUE, primaryItem) : null;
         }
+        return new MultiSourceDataContext(primary, secondarySources);
     }
     
-    private void addPrimaryData(MultiSourceDataContext context, Object data) {
-        if (data instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> mapData = (Map<String, Object>) data;
-            context.setPrimaryDataSource(mapData);
-        } else {
-            context.addValue(VALUE, data);
-        }
+    private static String sourceKey(int sourceIndex) {
+        return "source" + (sourceIndex + 1);
     }
     
-    private void addSecondaryData(MultiSourceDataContext context, Object data, int sourceIndex) {
-        String sourceKey = "source" + (sourceIndex + 1);
-        
-        if (data instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> mapData = (Map<String, Object>) data;
-            context.addDataSource(sourceKey, mapData);
-        } else {
-            Map<String, Object> wrappedData = Map.of(VALUE, data);
-            context.addDataSource(sourceKey, wrappedData);
+    // ========== Utility Methods ==========
+    
+    /**
+     * Render every item now, or hand the serializer a sequence that renders items one at a time
+     */
+    private void putArrayResults(MappingRequest request, Iterable<?> items, Function<Object, ?> contextFactory) {
+        String templateName = request.rule.getTemplateName();
+        OutputType outputType = request.rule.getOutputType();
+        if (request.deferRendering) {
+            request.targetData.put(request.targetKey, templateEngine.deferRenderAll(templateName, items, contextFactory, outputType));
+            return;
         }
+        
+        List<Object> results = items instanceof Collection<?> collection ? new ArrayList<>(collection.size()) : new ArrayList<>();
+        templateEngine.renderAll(templateName, contexts(items, contextFactory), outputType, results::add);
+        request.targetData.put(request.targetKey, results);
     }
     
-    // ========== Utility Methods ==========
+    /**
+     * Lazy view of the item contexts, so each context is built just before its item renders
+     */
+    private static Iterable<Object> contexts(Iterable<?> items, Function<Object, ?> contextFactory) {
+        return () -> new Iterator<>() {
+            private final Iterator<?> source = items.iterator();
+            
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+            
+            @Override
+            public Object next() {
+                return contextFactory.apply(source.next());
+            }
+        };
+    }
+    
+    /**
+     * Lazy walk over the leaves of a nested primary path, one match per rendered element
+     */
+    private static Iterable<CompiledPath.Match> matches(MappingRequest request) {
+        CompiledPath path = request.rule.getPath();
+        Map<String, Object> sourceData = request.sourceData;
+        return () -> path.matches(sourceData);
+    }
+    
+    /**
+     * Render now, or bind the template to its context for rendering during serialization
+     */
+    private Object render(MappingRequest request, Object context) {
+        String templateName = request.rule.getTemplateName();
+        if (request.deferRendering) {
+            return templateEngine.deferRender(templateName, context, request.rule.getOutputType());
+        }
+        return templateEngine.render(templateName, context, request.rule.getOutputType());
+    }
     
     private void validateRule(MappingRule rule) {
         if (rule.getTemplateName() == null) {
@@ -186,12 +262,15 @@ public class MustacheMapper {
         final Map<String, Object> targetData;
         final String targetKey;
         final MappingRule rule;
+        final boolean deferRendering;
         
-        MappingRequest(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey, MappingRule rule) {
+        MappingRequest(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey, MappingRule rule,
+                       boolean deferRendering) {
             this.sourceData = sourceData;
             this.targetData = targetData;
             this.targetKey = targetKey;
             this.rule = rule;
+            this.deferRendering = deferRendering;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package it.jedrzejewski.mustachemapper.mapper;
+
+import it.jedrzejewski.mustachemapper.config.MappingConfiguration.MappingRule;
+import it.jedrzejewski.mustachemapper.transform.Transformer;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.MapPathExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles TRANSFORM rules: the extracted value is passed to the rule's compiled transformer
+ * and the typed result is put into the target as is, without rendering or reparsing text.
+ */
+public class TransformMapper {
+    
+    private final MapPathExtractor pathExtractor;
+    
+    public TransformMapper(MapPathExtractor pathExtractor) {
+        this.pathExtractor = pathExtractor;
+    }
+    
+    /**
+     * Transform the value of a rule's jsonPath, or the list of values of its jsonPaths
+     */
+    public void processMapping(Map<String, Object> sourceData, Map<String, Object> targetData, String targetKey,
+                               MappingRule rule, Transformer transformer) {
+        Object value;
+        if (rule.hasMultipleSources()) {
+            List<Object> values = new ArrayList<>(rule.getPaths().size());
+            for (CompiledPath path : rule.getPaths()) {
+                values.add(pathExtractor.extract(sourceData, path));
+            }
+            value = values;
+        } else {
+            value = pathExtractor.extract(sourceData, rule.getPath());
+        }
+        
+        Object result = transformer.transform(value);
+        if (result != null) {
+            targetData.put(targetKey, result);
+        }
+    }
+}
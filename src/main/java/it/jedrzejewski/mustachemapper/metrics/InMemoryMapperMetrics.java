@@ -0,0 +1,91 @@
+package it.jedrzejewski.mustachemapper.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link Histogram} per pipeline stage, per template and per rule in memory.
+ * Intended to be read periodically (e.g. exported to a monitoring system or logged)
+ * to find the stage, template or rule dominating tail latency.
+ */
+public class InMemoryMapperMetrics implements MapperMetrics {
+    
+    private final Histogram parseTimes = new Histogram();
+    private final Histogram pathExtractionTimes = new Histogram();
+    private final Histogram serializationTimes = new Histogram();
+    private final Map<String, Histogram> compileTimes = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> renderTimes = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> ruleTimes = new ConcurrentHashMap<>();
+    
+    @Override
+    public void recordParse(long nanos) {
+        parseTimes.record(nanos);
+    }
+    
+    @Override
+    public void recordPathExtraction(long nanos) {
+        pathExtractionTimes.record(nanos);
+    }
+    
+    @Override
+    public void recordTemplateCompile(String templateName, long nanos) {
+        histogram(compileTimes, templateName).record(nanos);
+    }
+    
+    @Override
+    public void recordTemplateRender(String templateName, long nanos) {
+        histogram(renderTimes, templateName).record(nanos);
+    }
+    
+    @Override
+    public void recordRule(String targetPath, long nanos) {
+        histogram(ruleTimes, targetPath).record(nanos);
+    }
+    
+    @Override
+    public void recordSerialization(long nanos) {
+        serializationTimes.record(nanos);
+    }
+    
+    public Histogram getParseTimes() {
+        return parseTimes;
+    }
+    
+    public Histogram getPathExtractionTimes() {
+        return pathExtractionTimes;
+    }
+    
+    public Histogram getSerializationTimes() {
+        return serializationTimes;
+    }
+    
+    /**
+     * Compile times keyed by template name
+     */
+    public Map<String, Histogram> getCompileTimes() {
+        return Collections.unmodifiableMap(compileTimes);
+    }
+    
+    /**
+     * Render times keyed by template name
+     */
+    public Map<String, Histogram> getRenderTimes() {
+        return Collections.unmodifiableMap(renderTimes);
+    }
+    
+    /**
+     * Rule times keyed by dot separated target path
+     */
+    public Map<String, Histogram> getRuleTimes() {
+        return Collections.unmodifiableMap(ruleTimes);
+    }
+    
+    private static Histogram histogram(Map<String, Histogram> histograms, String key) {
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(key, k -> new Histogram());
+        }
+        return histogram;
+    }
+}
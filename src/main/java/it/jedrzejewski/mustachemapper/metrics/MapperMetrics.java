@@ -0,0 +1,65 @@
+package it.jedrzejewski.mustachemapper.metrics;
+
+/**
+ * Receives timings of each stage of the mapping pipeline.
+ * All durations are in nanoseconds. Implementations must be thread-safe,
+ * as a single instance is shared by every thread using the mapper.
+ * Every method has an empty default, so implementations only override the stages they care about.
+ */
+public interface MapperMetrics {
+    
+    /**
+     * Metrics that record nothing; used when no metrics are configured
+     */
+    MapperMetrics NOOP = new MapperMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+    
+    /**
+     * Whether timings should be taken at all. When false the pipeline skips reading the clock.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+    
+    /**
+     * Source JSON parsed into a document
+     */
+    default void recordParse(long nanos) {
+    }
+    
+    /**
+     * A single path evaluated against a document
+     */
+    default void recordPathExtraction(long nanos) {
+    }
+    
+    /**
+     * A registered template compiled (a cache miss)
+     */
+    default void recordTemplateCompile(String templateName, long nanos) {
+    }
+    
+    /**
+     * A template rendered once
+     */
+    default void recordTemplateRender(String templateName, long nanos) {
+    }
+    
+    /**
+     * A mapping rule applied to a document, including extraction and rendering
+     *
+     * @param targetPath dot separated target key of the rule, e.g. {@code Customer.Name}
+     */
+    default void recordRule(String targetPath, long nanos) {
+    }
+    
+    /**
+     * Target document serialized
+     */
+    default void recordSerialization(long nanos) {
+    }
+}
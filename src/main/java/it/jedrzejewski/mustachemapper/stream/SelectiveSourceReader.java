@@ -0,0 +1,116 @@
+package it.jedrzejewski.mustachemapper.stream;
+
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a JSON document into Map/List data, keeping only the subtrees a {@link PathTrie} can reach.
+ * Everything else is skipped on the streaming parser without being materialized.
+ * Subtrees that are kept are bound exactly as {@link ObjectMapper} would bind them, and array
+ * elements keep their positions, so every path of the trie evaluates to the same value as on a full parse.
+ */
+public class SelectiveSourceReader {
+    
+    private final ObjectReader valueReader;
+    
+    public SelectiveSourceReader(ObjectMapper objectMapper) {
+        this.valueReader = objectMapper.readerFor(Object.class);
+    }
+    
+    /**
+     * Read the JSON object at the parser's current token, or at the next one if there is no current token
+     */
+    public Map<String, Object> read(JsonParser parser, PathTrie paths) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token == null) {
+            throw MismatchedInputException.from(parser, Map.class, "No content to map due to end-of-input");
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, Map.class, "Source document must be a JSON object, found " + token);
+        }
+        
+        if (paths.isComplete()) {
+            return readComplete(parser);
+        }
+        return readObject(parser, paths);
+    }
+    
+    /**
+     * Read the value at the parser's current token, keeping only what the trie reaches
+     */
+    public Object readValue(JsonParser parser, PathTrie paths) throws IOException {
+        return readValue(parser, parser.currentToken(), paths);
+    }
+    
+    private Object readValue(JsonParser parser, JsonToken token, PathTrie paths) throws IOException {
+        if (paths.isComplete()) {
+            return valueReader.readValue(parser);
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser, paths);
+            case START_ARRAY:
+                return readArray(parser, paths);
+            default:
+                // A path continuing below a scalar resolves to nothing, but the scalar itself is cheap
+                return valueReader.readValue(parser);
+        }
+    }
+    
+    private Map<String, Object> readObject(JsonParser parser, PathTrie paths) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            PathTrie child = paths.field(name);
+            
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                result.put(name, readValue(parser, valueToken, child));
+            }
+        }
+        return result;
+    }
+    
+    private List<Object> readArray(JsonParser parser, PathTrie paths) throws IOException {
+        List<Object> result = new ArrayList<>();
+        int lastIndex = paths.lastElementIndex();
+        int index = 0;
+        JsonToken token;
+        
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            PathTrie child = index <= lastIndex ? paths.element(index) : null;
+            if (child != null) {
+                result.add(readValue(parser, token, child));
+            } else {
+                parser.skipChildren();
+                if (index < lastIndex) {
+                    // Placeholder keeps later referenced elements at their index
+                    result.add(null);
+                }
+            }
+            index++;
+        }
+        return result;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readComplete(JsonParser parser) throws IOException {
+        return (Map<String, Object>) valueReader.readValue(parser);
+    }
+}
@@ -0,0 +1,333 @@
+package it.jedrzejewski.mustachemapper.stream;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.config.MappingConfiguration.MappingRule;
+import it.jedrzejewski.mustachemapper.mapper.MappingProcessor;
+import it.jedrzejewski.mustachemapper.mapper.MustacheMapper;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+import it.jedrzejewski.mustachemapper.stream.StreamingPlan.Slot;
+import it.jedrzejewski.mustachemapper.stream.StreamingPlan.SlotKind;
+import it.jedrzejewski.mustachemapper.stream.StreamingPlan.StreamNode;
+import it.jedrzejewski.mustachemapper.template.TemplateEngine;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Evaluates every rule of a mapping in a single forward pass over a {@link JsonParser}.
+ * Elements of streamed array rules (see {@link StreamingPlan}) are rendered as soon as they are
+ * parsed and then dropped, so arrays of any length are mapped in constant memory. Other rules read
+ * selectively captured data and are evaluated as soon as the top-level fields they use are complete.
+ * <p>
+ * Target keys are written in configuration order, as in {@link MappingProcessor} targets. A streamed array is written straight to the
+ * generator when every key before it has been written; otherwise its rendered elements are held
+ * until then. Secondary sources of a streamed rule must appear before its array in the document;
+ * if they do not, that array is captured and evaluated like any other rule.
+ */
+public class StreamingMappingEngine {
+    
+    private static final Object SKIPPED = new Object();
+    private static final Object ABSENT = new Object();
+    
+    private final ObjectReader valueReader;
+    private final ObjectWriter valueWriter;
+    private final SelectiveSourceReader sourceReader;
+    private final TemplateEngine templateEngine;
+    private final MappingProcessor mappingProcessor;
+    private final MustacheMapper mustacheMapper;
+    private final MapperMetrics metrics;
+    private final Map<CompiledMapping, StreamingPlan> plans = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    public StreamingMappingEngine(ObjectMapper objectMapper, TemplateEngine templateEngine, MappingProcessor mappingProcessor) {
+        this.valueReader = objectMapper.readerFor(Object.class);
+        this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.sourceReader = new SelectiveSourceReader(objectMapper);
+        this.templateEngine = templateEngine;
+        this.mappingProcessor = mappingProcessor;
+        this.mustacheMapper = new MustacheMapper(templateEngine);
+        this.metrics = templateEngine.getMetrics();
+    }
+    
+    /**
+     * Map the JSON object at the parser's current token (or the next one) into the generator.
+     * The generator is flushed but not closed.
+     */
+    public void transform(JsonParser source, CompiledMapping mapping, JsonGenerator target) throws IOException {
+        StreamingPlan plan = plans.computeIfAbsent(mapping, StreamingPlan::of);
+        new Pass(plan, source, target).run();
+        target.flush();
+    }
+    
+    private enum SlotState {
+        PENDING,
+        STREAMING,
+        STREAMED,
+        DONE
+    }
+    
+    /**
+     * State of one document being transformed
+     */
+    private final class Pass {
+        private final StreamingPlan plan;
+        private final JsonParser parser;
+        private final JsonGenerator generator;
+        private final Map<String, Object> captured = new LinkedHashMap<>();
+        private final Set<String> completeFields = new HashSet<>();
+        private final SlotState[] states;
+        private final Object[] values;
+        private final Map<Integer, List<Object>> heldElements = new HashMap<>();
+        private boolean documentComplete;
+        private int cursor;
+        private boolean cursorOpen;
+        
+        Pass(StreamingPlan plan, JsonParser parser, JsonGenerator generator) {
+            this.plan = plan;
+            this.parser = parser;
+            this.generator = generator;
+            this.states = new SlotState[plan.getSlots().size()];
+            this.values = new Object[states.length];
+            Arrays.fill(states, SlotState.PENDING);
+        }
+        
+        void run() throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == null) {
+                token = parser.nextToken();
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(parser, Map.class,
+                    token == null ? "No content to map due to end-of-input" : "Source document must be a JSON object, found " + token);
+            }
+            
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                Object value = read(valueToken, child(plan.getCapturePaths(), name), plan.getStreamRoot().child(name));
+                if (value != SKIPPED) {
+                    captured.put(name, value);
+                }
+                completeFields.add(name);
+                evaluateReadyRules();
+                advance();
+            }
+            
+            documentComplete = true;
+            evaluateReadyRules();
+            advance();
+            generator.writeEndObject();
+        }
+        
+        // ========== Reading ==========
+        
+        private Object read(JsonToken token, PathTrie capture, StreamNode stream) throws IOException {
+            if (stream == null) {
+                if (capture == null) {
+                    parser.skipChildren();
+                    return SKIPPED;
+                }
+                return sourceReader.readValue(parser, capture);
+            }
+            if (!stream.streamedRules.isEmpty()) {
+                return streamArray(token, stream.streamedRules);
+            }
+            if (token != JsonToken.START_OBJECT) {
+                // Not the shape streamed paths expect; nothing below can stream
+                return capture != null ? sourceReader.readValue(parser, capture) : skip();
+            }
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                Object value = read(valueToken, child(capture, name), stream.child(name));
+                if (value != SKIPPED) {
+                    result.put(name, value);
+                }
+            }
+            return capture == null && result.isEmpty() ? SKIPPED : result;
+        }
+        
+        private Object streamArray(JsonToken token, List<Slot> rules) throws IOException {
+            if (token != JsonToken.START_ARRAY || !secondarySourcesComplete(rules)) {
+                // Captured whole and evaluated as a regular rule once its fields are complete
+                return valueReader.readValue(parser);
+            }
+            
+            // Rule timings add up resolution and rendering of every element, but not parsing
+            long[] ruleNanos = new long[rules.size()];
+            List<Map<String, Object>> secondarySources = new ArrayList<>(rules.size());
+            for (int i = 0; i < rules.size(); i++) {
+                Slot slot = rules.get(i);
+                long start = metrics.isEnabled() ? System.nanoTime() : 0;
+                secondarySources.add(mustacheMapper.resolveSecondarySources(captured, slot.rule()));
+                if (metrics.isEnabled()) {
+                    ruleNanos[i] += System.nanoTime() - start;
+                }
+                states[slot.position] = SlotState.STREAMING;
+            }
+            advance();
+            
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Object item = valueReader.readValue(parser);
+                for (int i = 0; i < rules.size(); i++) {
+                    if (!metrics.isEnabled()) {
+                        renderElement(rules.get(i), item, secondarySources.get(i));
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    renderElement(rules.get(i), item, secondarySources.get(i));
+                    ruleNanos[i] += System.nanoTime() - start;
+                }
+            }
+            
+            for (int i = 0; i < rules.size(); i++) {
+                Slot slot = rules.get(i);
+                states[slot.position] = SlotState.STREAMED;
+                if (metrics.isEnabled()) {
+                    metrics.recordRule(slot.node.getTargetPath(), ruleNanos[i]);
+                }
+            }
+            return SKIPPED;
+        }
+        
+        private boolean secondarySourcesComplete(List<Slot> rules) {
+            for (Slot slot : rules) {
+                List<CompiledPath> paths = slot.rule().getPaths();
+                for (CompiledPath path : paths.subList(1, paths.size())) {
+                    List<CompiledPath.Step> steps = path.getSteps();
+                    if (steps.isEmpty() || steps.get(0).getKind() != CompiledPath.StepKind.FIELD
+                            || !completeFields.contains(steps.get(0).getName())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        private Object skip() throws IOException {
+            parser.skipChildren();
+            return SKIPPED;
+        }
+        
+        // ========== Evaluation and Output ==========
+        
+        private void renderElement(Slot slot, Object item, Map<String, Object> secondarySources) throws IOException {
+            MappingRule rule = slot.rule();
+            Object context = mustacheMapper.createItemContext(rule, item, secondarySources);
+            if (cursor == slot.position && cursorOpen) {
+                templateEngine.render(rule.getTemplateName(), context, generator, rule.getOutputType());
+            } else {
+                heldElements.computeIfAbsent(slot.position, k -> new ArrayList<>())
+                    .add(templateEngine.render(rule.getTemplateName(), context, rule.getOutputType()));
+            }
+        }
+        
+        private void evaluateReadyRules() {
+            for (Slot slot : plan.getSlots()) {
+                if (slot.kind == SlotKind.RULE && states[slot.position] == SlotState.PENDING && isReady(slot)) {
+                    Map<String, Object> target = new HashMap<>(2);
+                    // Rendering stays eager while metrics are on, so it is part of the rule timing
+                    mappingProcessor.processNode(captured, target, slot.node, !metrics.isEnabled());
+                    String key = slot.node.getTargetKey();
+                    values[slot.position] = target.containsKey(key) ? target.get(key) : ABSENT;
+                    states[slot.position] = SlotState.DONE;
+                }
+            }
+        }
+        
+        private boolean isReady(Slot slot) {
+            return documentComplete || slot.inputFields != null && completeFields.containsAll(slot.inputFields);
+        }
+        
+        /**
+         * Write every slot from the cursor on that is ready, stopping at the first one that is not
+         */
+        private void advance() throws IOException {
+            List<Slot> slots = plan.getSlots();
+            while (cursor < slots.size()) {
+                Slot slot = slots.get(cursor);
+                String key = slot.node.getTargetKey();
+                
+                if (slot.kind == SlotKind.OPEN_GROUP) {
+                    generator.writeFieldName(key);
+                    generator.writeStartObject();
+                } else if (slot.kind == SlotKind.CLOSE_GROUP) {
+                    generator.writeEndObject();
+                } else {
+                    SlotState state = states[cursor];
+                    if (state == SlotState.PENDING) {
+                        return;
+                    }
+                    if (state == SlotState.DONE) {
+                        if (values[cursor] != ABSENT) {
+                            generator.writeFieldName(key);
+                            try {
+                                valueWriter.writeValue(generator, values[cursor]);
+                            } catch (JsonMappingException e) {
+                                throw JsonStructureMapper.renderingFailure(e);
+                            }
+                            values[cursor] = null;
+                        }
+                    } else {
+                        if (!cursorOpen) {
+                            generator.writeFieldName(key);
+                            generator.writeStartArray();
+                            writeHeldElements(cursor);
+                            cursorOpen = true;
+                        }
+                        if (state == SlotState.STREAMING) {
+                            // Further elements go straight to the generator
+                            return;
+                        }
+                        generator.writeEndArray();
+                        cursorOpen = false;
+                    }
+                }
+                cursor++;
+            }
+        }
+        
+        private void writeHeldElements(int position) throws IOException {
+            List<Object> held = heldElements.remove(position);
+            if (held != null) {
+                for (Object element : held) {
+                    if (element instanceof String text) {
+                        generator.writeString(text);
+                    } else {
+                        valueWriter.writeValue(generator, element);
+                    }
+                }
+            }
+        }
+    }
+    
+    private static PathTrie child(PathTrie paths, String name) {
+        if (paths == null) {
+            return null;
+        }
+        return paths.isComplete() ? paths : paths.field(name);
+    }
+}
@@ -0,0 +1,220 @@
+package it.jedrzejewski.mustachemapper.stream;
+
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.config.MapperType;
+import it.jedrzejewski.mustachemapper.config.MappingConfiguration.MappingRule;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * How {@link StreamingMappingEngine} evaluates a compiled mapping in one pass.
+ * MUSTACHE array rules over a plain field path ({@code $.a.b[*]}) that no other rule reads into
+ * are streamed: each element is rendered as soon as it is parsed. Everything else is captured
+ * selectively and evaluated once the top-level fields it reads have been parsed.
+ */
+final class StreamingPlan {
+    
+    /**
+     * Target document flattened into the order it is written in
+     */
+    enum SlotKind {
+        OPEN_GROUP,
+        CLOSE_GROUP,
+        RULE
+    }
+    
+    static final class Slot {
+        final int position;
+        final SlotKind kind;
+        final CompiledMapping.Node node;
+        /** Top-level source fields the rule reads; null if it can only be evaluated at the end of the document */
+        final Set<String> inputFields;
+        
+        Slot(int position, SlotKind kind, CompiledMapping.Node node, Set<String> inputFields) {
+            this.position = position;
+            this.kind = kind;
+            this.node = node;
+            this.inputFields = inputFields;
+        }
+        
+        MappingRule rule() {
+            return node.getRule();
+        }
+    }
+    
+    /**
+     * Field path leading to streamed arrays
+     */
+    static final class StreamNode {
+        final Map<String, StreamNode> children = new HashMap<>();
+        final List<Slot> streamedRules = new ArrayList<>();
+        
+        StreamNode child(String name) {
+            return children.get(name);
+        }
+    }
+    
+    private final List<Slot> slots;
+    private final PathTrie capturePaths;
+    private final StreamNode streamRoot;
+    
+    private StreamingPlan(List<Slot> slots, PathTrie capturePaths, StreamNode streamRoot) {
+        this.slots = Collections.unmodifiableList(slots);
+        this.capturePaths = capturePaths;
+        this.streamRoot = streamRoot;
+    }
+    
+    static StreamingPlan of(CompiledMapping mapping) {
+        List<Slot> slots = new ArrayList<>();
+        flatten(mapping, slots);
+        
+        List<Slot> streamed = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (slot.kind == SlotKind.RULE && isStreamCandidate(slot.rule())) {
+                streamed.add(slot);
+            }
+        }
+        
+        // Drop candidates whose array is also read by a captured path, until nothing changes
+        PathTrie capturePaths;
+        boolean changed;
+        do {
+            capturePaths = PathTrie.of(capturedPaths(slots, streamed));
+            changed = streamed.removeIf(overlapping(streamed, capturePaths));
+        } while (changed);
+        
+        StreamNode streamRoot = new StreamNode();
+        for (Slot slot : streamed) {
+            StreamNode node = streamRoot;
+            for (String field : arrayFieldPath(slot.rule())) {
+                node = node.children.computeIfAbsent(field, k -> new StreamNode());
+            }
+            node.streamedRules.add(slot);
+        }
+        return new StreamingPlan(slots, capturePaths, streamRoot);
+    }
+    
+    List<Slot> getSlots() {
+        return slots;
+    }
+    
+    PathTrie getCapturePaths() {
+        return capturePaths;
+    }
+    
+    StreamNode getStreamRoot() {
+        return streamRoot;
+    }
+    
+    // ========== Planning ==========
+    
+    private static void flatten(CompiledMapping mapping, List<Slot> slots) {
+        for (CompiledMapping.Node node : mapping.getNodes()) {
+            if (node.isRule()) {
+                slots.add(new Slot(slots.size(), SlotKind.RULE, node, inputFields(node.getRule())));
+            } else {
+                slots.add(new Slot(slots.size(), SlotKind.OPEN_GROUP, node, null));
+                flatten(node.getChildren(), slots);
+                slots.add(new Slot(slots.size(), SlotKind.CLOSE_GROUP, node, null));
+            }
+        }
+    }
+    
+    private static Set<String> inputFields(MappingRule rule) {
+        if (rule.getPaths().isEmpty()) {
+            return null;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (CompiledPath path : rule.getPaths()) {
+            List<CompiledPath.Step> steps = path.getSteps();
+            if (steps.isEmpty() || steps.get(0).getKind() != CompiledPath.StepKind.FIELD) {
+                return null;
+            }
+            fields.add(steps.get(0).getName());
+        }
+        return fields;
+    }
+    
+    private static boolean isStreamCandidate(MappingRule rule) {
+        if (rule.getMapperType() != MapperType.MUSTACHE || !rule.isArrayProcessing()) {
+            return false;
+        }
+        List<CompiledPath.Step> steps = rule.getPath().getSteps();
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (steps.get(i).getKind() != CompiledPath.StepKind.FIELD) {
+                return false;
+            }
+        }
+        // Filters and slices select elements the stream would have to test first
+        return steps.size() > 1 && rule.getPath().endsWithWildcard();
+    }
+    
+    private static List<String> arrayFieldPath(MappingRule rule) {
+        List<CompiledPath.Step> steps = rule.getPath().getSteps();
+        List<String> fields = new ArrayList<>(steps.size() - 1);
+        for (int i = 0; i < steps.size() - 1; i++) {
+            fields.add(steps.get(i).getName());
+        }
+        return fields;
+    }
+    
+    private static List<CompiledPath> capturedPaths(List<Slot> slots, List<Slot> streamed) {
+        Set<Slot> streamedSet = new HashSet<>(streamed);
+        List<CompiledPath> paths = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (slot.kind != SlotKind.RULE) {
+                continue;
+            }
+            List<CompiledPath> rulePaths = slot.rule().getPaths();
+            // The primary array of a streamed rule is consumed element by element, not captured
+            paths.addAll(streamedSet.contains(slot) ? rulePaths.subList(1, rulePaths.size()) : rulePaths);
+        }
+        return paths;
+    }
+    
+    /**
+     * A candidate cannot stream if a captured path reaches its array or an enclosing value whole,
+     * or if another streamed array lies on the same field path
+     */
+    private static Predicate<Slot> overlapping(List<Slot> streamed, PathTrie capturePaths) {
+        return slot -> {
+            List<String> fields = arrayFieldPath(slot.rule());
+            PathTrie node = capturePaths;
+            for (String field : fields) {
+                if (node.isComplete()) {
+                    return true;
+                }
+                node = node.field(field);
+                if (node == null) {
+                    break;
+                }
+            }
+            if (node != null) {
+                return true;
+            }
+            for (Slot other : streamed) {
+                List<String> otherFields = arrayFieldPath(other.rule());
+                if (!otherFields.equals(fields) && isPrefix(fields, otherFields)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+    
+    private static boolean isPrefix(List<String> a, List<String> b) {
+        List<String> shorter = a.size() <= b.size() ? a : b;
+        List<String> longer = shorter == a ? b : a;
+        return longer.subList(0, shorter.size()).equals(shorter);
+    }
+}
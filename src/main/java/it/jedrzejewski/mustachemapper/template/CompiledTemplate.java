@@ -0,0 +1,97 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.mustachejava.Mustache;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * A Mustache template compiled for a specific version of its registry content.
+ * Templates made only of literal text and variable tags also carry a precomputed segment
+ * list that renders without Mustache.java; anything else renders through Mustache.java.
+ * Instances are immutable and safe to share between threads.
+ */
+@Getter
+public class CompiledTemplate {
+    
+    private final String name;
+    private final long version;
+    private final Mustache mustache;
+    @Getter(AccessLevel.NONE)
+    private final SimpleTemplate simpleTemplate;
+    
+    public CompiledTemplate(String name, long version, Mustache mustache) {
+        this(name, version, mustache, null);
+    }
+    
+    CompiledTemplate(String name, long version, Mustache mustache, SimpleTemplate simpleTemplate) {
+        this.name = name;
+        this.version = version;
+        this.mustache = mustache;
+        this.simpleTemplate = simpleTemplate;
+    }
+    
+    /**
+     * Whether this template renders through the precomputed segment list instead of Mustache.java
+     */
+    public boolean isSimple() {
+        return simpleTemplate != null;
+    }
+    
+    /**
+     * Render this template with any data object
+     */
+    public String render(Object dataObject) {
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            execute(dataObject, buffer);
+            return buffer.toTrimmedString();
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Render into a caller-supplied buffer, replacing its content. The output is not trimmed.
+     */
+    public void render(Object dataObject, RenderBuffer buffer) {
+        buffer.reset();
+        execute(dataObject, buffer);
+    }
+    
+    /**
+     * Render and write the trimmed output as a JSON string value, without an intermediate String
+     */
+    public void render(Object dataObject, JsonGenerator generator) throws IOException {
+        render(dataObject, generator, OutputType.STRING);
+    }
+    
+    /**
+     * Render and write the trimmed output as a value of the given type, see {@link RenderBuffer#writeTrimmedTo(JsonGenerator, OutputType)}
+     */
+    public void render(Object dataObject, JsonGenerator generator, OutputType outputType) throws IOException {
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            execute(dataObject, buffer);
+            buffer.writeTrimmedTo(generator, outputType);
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Render into an empty buffer, falling back to Mustache.java when the fast path meets a value it cannot resolve
+     */
+    private void execute(Object dataObject, RenderBuffer buffer) {
+        if (simpleTemplate != null) {
+            if (simpleTemplate.render(dataObject, buffer)) {
+                return;
+            }
+            buffer.reset();
+        }
+        mustache.execute(buffer, dataObject);
+    }
+}
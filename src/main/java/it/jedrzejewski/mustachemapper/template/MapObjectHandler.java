@@ -0,0 +1,107 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import com.github.mustachejava.reflect.ReflectionObjectHandler;
+import com.github.mustachejava.util.GuardException;
+import com.github.mustachejava.util.Wrapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Object handler for template data made of maps: plain maps, {@code MultiSourceDataContext},
+ * {@code JsonNodeWrapper} and compact document views. Names such as {@code source2.name} are
+ * resolved with direct {@link Map#get} calls along a plan split once per name, following the
+ * same scope rules as {@link ReflectionObjectHandler}. Lookups that reach anything other than
+ * a map (a POJO, a String, an Optional) are handed to the reflection handler.
+ */
+public class MapObjectHandler extends ReflectionObjectHandler {
+    
+    /** Marks a lookup this handler cannot answer without reflection */
+    private static final Object UNRESOLVED = new Object();
+    /** Shared failure signal; Mustache.java only uses it to try the next cached wrapper */
+    private static final GuardException NOT_A_MAP = new GuardException("Scope is not a map");
+    
+    private final Map<String, MapPath> plans = new ConcurrentHashMap<>();
+    
+    @Override
+    public Wrapper find(String name, List<Object> scopes) {
+        MapPath plan = plans.computeIfAbsent(name, MapPath::new);
+        if (plan.segments == null || plan.resolve(scopes) == UNRESOLVED) {
+            return super.find(name, scopes);
+        }
+        return plan;
+    }
+    
+    /**
+     * Resolution plan of one name. As a wrapper it is cached by each template tag that uses the
+     * name and re-checks on every call that the scopes it walks are still maps.
+     */
+    private static final class MapPath implements Wrapper {
+        private final String name;
+        /** Dot-separated parts of the name, or null for names left to the reflection handler */
+        private final String[] segments;
+        
+        MapPath(String name) {
+            this.name = name;
+            this.segments = isPlainName(name) ? name.split("\\.") : null;
+        }
+        
+        @Override
+        public Object call(List<Object> scopes) throws GuardException {
+            Object value = resolve(scopes);
+            if (value == UNRESOLVED) {
+                throw NOT_A_MAP;
+            }
+            return value;
+        }
+        
+        /**
+         * Search scopes innermost first. A scope answers when it holds the whole name or the dotted
+         * prefix; a prefix found but not completed ends the search without a value.
+         */
+        Object resolve(List<Object> scopes) {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                Object scope = scopes.get(i);
+                if (scope == null) {
+                    continue;
+                }
+                if (!(scope instanceof Map<?, ?> map)) {
+                    return UNRESOLVED;
+                }
+                if (map.containsKey(name)) {
+                    return map.get(name);
+                }
+                if (segments.length == 1) {
+                    continue;
+                }
+        
+                Object current = map;
+                boolean prefixFound = true;
+                for (int s = 0; s < segments.length - 1; s++) {
+                    Map<?, ?> parent = (Map<?, ?>) current;
+                    if (!parent.containsKey(segments[s])) {
+                        prefixFound = false;
+                        break;
+                    }
+                    current = parent.get(segments[s]);
+                    if (current == null) {
+                        return null;
+                    }
+                    if (!(current instanceof Map)) {
+                        return UNRESOLVED;
+                    }
+                }
+                if (!prefixFound) {
+                    continue;
+                }
+                return ((Map<?, ?>) current).get(segments[segments.length - 1]);
+            }
+            return null;
+        }
+        
+        private static boolean isPlainName(String name) {
+            return !name.isEmpty() && !name.startsWith(".") && !name.endsWith(".") && !name.contains("..");
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Reusable character buffer that templates render into.
+ * Trimming is done by index, so the rendered text is copied at most once: into a String,
+ * or not at all when written straight to a {@link JsonGenerator}.
+ * A buffer is not thread-safe; {@link #acquire()} hands out one buffer per thread.
+ */
+public final class RenderBuffer extends Writer {
+    
+    private static final int INITIAL_CAPACITY = 256;
+    /** Buffers grown beyond this are not kept, so one huge render does not pin memory per thread */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    
+    /** Only used to check JSON output; parsers are streaming and build no tree */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private static final ThreadLocal<RenderBuffer> LOCAL_BUFFER = ThreadLocal.withInitial(RenderBuffer::new);
+    
+    private char[] chars;
+    private int length;
+    private boolean inUse;
+    
+    public RenderBuffer() {
+        this.chars = new char[INITIAL_CAPACITY];
+    }
+    
+    /**
+     * Take the calling thread's buffer, or a fresh one if it is already in use
+     * (a template rendering another template on the same thread). Must be paired with {@link #release()}.
+     */
+    static RenderBuffer acquire() {
+        RenderBuffer buffer = LOCAL_BUFFER.get();
+        if (buffer.inUse) {
+            return new RenderBuffer();
+        }
+        buffer.inUse = true;
+        buffer.reset();
+        return buffer;
+    }
+    
+    /**
+     * Hand the buffer back after {@link #acquire()}
+     */
+    void release() {
+        inUse = false;
+        length = 0;
+        if (chars.length > MAX_RETAINED_CAPACITY) {
+            chars = new char[INITIAL_CAPACITY];
+        }
+    }
+    
+    /**
+     * Discard the content, keeping the capacity
+     */
+    public void reset() {
+        length = 0;
+    }
+    
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public void write(int c) {
+        ensureCapacity(length + 1);
+        chars[length++] = (char) c;
+    }
+    
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        ensureCapacity(length + len);
+        System.arraycopy(cbuf, off, chars, length, len);
+        length += len;
+    }
+    
+    @Override
+    public void write(String str, int off, int len) {
+        ensureCapacity(length + len);
+        str.getChars(off, off + len, chars, length);
+        length += len;
+    }
+    
+    @Override
+    public void flush() {
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    /**
+     * The content without leading and trailing whitespace, as {@link String#trim()} defines it
+     */
+    public String toTrimmedString() {
+        int start = trimmedStart();
+        return new String(chars, start, trimmedEnd(start) - start);
+    }
+    
+    /**
+     * Write the trimmed content as a JSON string value without creating an intermediate String
+     */
+    public void writeTrimmedTo(JsonGenerator generator) throws IOException {
+        int start = trimmedStart();
+        generator.writeString(chars, start, trimmedEnd(start) - start);
+    }
+    
+    /**
+     * Write the trimmed content as a value of the given type. Numbers and raw JSON are copied from the
+     * buffer as they are, after a grammar check but without being converted to objects or parsed into a tree;
+     * empty output is written as null.
+     * 
+     * @throws IllegalArgumentException if the content is not a valid number, boolean or JSON value
+     */
+    public void writeTrimmedTo(JsonGenerator generator, OutputType outputType) throws IOException {
+        int start = trimmedStart();
+        int end = trimmedEnd(start);
+        if (outputType == OutputType.STRING) {
+            generator.writeString(chars, start, end - start);
+        } else if (start == end) {
+            generator.writeNull();
+        } else if (outputType == OutputType.NUMBER) {
+            checkNumber(start, end);
+            generator.writeNumber(chars, start, end - start);
+        } else if (outputType == OutputType.BOOLEAN) {
+            generator.writeBoolean(parseBoolean(start, end));
+        } else {
+            checkJson(start, end);
+            generator.writeRawValue(chars, start, end - start);
+        }
+    }
+    
+    /**
+     * The trimmed content as a value of the given type: a String, a Long, BigInteger or Double,
+     * a Boolean, or a {@link RawValue} that Jackson writes out verbatim. Empty output is null.
+     * 
+     * @throws IllegalArgumentException if the content is not a valid number, boolean or JSON value
+     */
+    public Object toTrimmedValue(OutputType outputType) {
+        int start = trimmedStart();
+        int end = trimmedEnd(start);
+        if (outputType == OutputType.STRING) {
+            return new String(chars, start, end - start);
+        }
+        if (start == end) {
+            return null;
+        }
+        if (outputType == OutputType.NUMBER) {
+            boolean integral = checkNumber(start, end);
+            String number = new String(chars, start, end - start);
+            if (!integral) {
+                return Double.parseDouble(number);
+            }
+            try {
+                return Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                return new BigInteger(number);
+            }
+        }
+        if (outputType == OutputType.BOOLEAN) {
+            return parseBoolean(start, end);
+        }
+        checkJson(start, end);
+        return new RawValue(new String(chars, start, end - start));
+    }
+    
+    /**
+     * The trimmed content as the text {@link #writeTrimmedTo(JsonGenerator, OutputType)} writes for the given type:
+     * unquoted for strings, the checked literal for numbers, booleans and JSON, and {@code null} for empty typed output
+     * 
+     * @throws IllegalArgumentException if the content is not a valid number, boolean or JSON value
+     */
+    public String toTrimmedText(OutputType outputType) {
+        int start = trimmedStart();
+        int end = trimmedEnd(start);
+        if (outputType != OutputType.STRING && start == end) {
+            return "null";
+        }
+        if (outputType == OutputType.NUMBER) {
+            checkNumber(start, end);
+        } else if (outputType == OutputType.BOOLEAN) {
+            return String.valueOf(parseBoolean(start, end));
+        } else if (outputType == OutputType.JSON) {
+            checkJson(start, end);
+        }
+        return new String(chars, start, end - start);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+    
+    /**
+     * Check the JSON number grammar ({@code -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?})
+     * 
+     * @return true if the number has neither a fraction nor an exponent
+     */
+    private boolean checkNumber(int start, int end) {
+        int i = start;
+        if (i < end && chars[i] == '-') {
+            i++;
+        }
+        int integerStart = i;
+        i = skipDigits(i, end);
+        boolean valid = i > integerStart && (chars[integerStart] != '0' || i == integerStart + 1);
+        boolean integral = true;
+        if (valid && i < end && chars[i] == '.') {
+            int fractionStart = ++i;
+            i = skipDigits(i, end);
+            valid = i > fractionStart;
+            integral = false;
+        }
+        if (valid && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            if (i < end && (chars[i] == '+' || chars[i] == '-')) {
+                i++;
+            }
+            int exponentStart = i;
+            i = skipDigits(i, end);
+            valid = i > exponentStart;
+            integral = false;
+        }
+        if (!valid || i != end) {
+            throw new IllegalArgumentException("Rendered output is not a JSON number: '" + new String(chars, start, end - start) + "'");
+        }
+        return integral;
+    }
+    
+    /**
+     * Check that the content is exactly one JSON value by streaming over it
+     */
+    private void checkJson(int start, int end) {
+        try (JsonParser parser = JSON_FACTORY.createParser(chars, start, end - start)) {
+            parser.nextToken();
+            parser.skipChildren();
+            if (parser.nextToken() == null) {
+                return;
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Rendered output is not a JSON value: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        throw new IllegalArgumentException("Rendered output is not a single JSON value: '" + new String(chars, start, end - start) + "'");
+    }
+    
+    private int skipDigits(int i, int end) {
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+            i++;
+        }
+        return i;
+    }
+    
+    private boolean parseBoolean(int start, int end) {
+        if (matches(start, end, "true")) {
+            return true;
+        }
+        if (matches(start, end, "false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Rendered output is not a JSON boolean: '" + new String(chars, start, end - start) + "'");
+    }
+    
+    private boolean matches(int start, int end, String literal) {
+        if (end - start != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (chars[start + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int trimmedStart() {
+        int start = 0;
+        while (start < length && chars[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    
+    private int trimmedEnd(int start) {
+        int end = length;
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+}
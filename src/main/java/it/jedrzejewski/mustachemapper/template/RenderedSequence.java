@@ -0,0 +1,102 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * The result of an array rule that has not been rendered yet: a template, the source items
+ * and how to build each item's context. When Jackson serializes it, items are rendered one at a
+ * time straight into the generator, so peak memory depends on a single item rather than the array.
+ * Elements are written as values of the rule's {@link OutputType}; iterating renders on demand the text each element
+ * is serialized as, like {@link RenderedValue#toString()}.
+ * Items may be any re-iterable source, such as a lazy walk over nested arrays; it is iterated once per serialization.
+ */
+public final class RenderedSequence extends JsonSerializable.Base implements Iterable<String> {
+    
+    private final TemplateEngine templateEngine;
+    private final CompiledTemplate template;
+    private final Iterable<?> items;
+    private final Function<Object, ?> contextFactory;
+    private final OutputType outputType;
+    
+    RenderedSequence(TemplateEngine templateEngine, CompiledTemplate template, Iterable<?> items, Function<Object, ?> contextFactory,
+                     OutputType outputType) {
+        this.templateEngine = templateEngine;
+        this.template = template;
+        this.items = items;
+        this.contextFactory = contextFactory;
+        this.outputType = outputType;
+    }
+    
+    public String getTemplateName() {
+        return template.getName();
+    }
+    
+    /**
+     * Number of items; counted by iterating when the items are not a collection
+     */
+    public int size() {
+        if (items instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        int size = 0;
+        for (Iterator<?> iterator = items.iterator(); iterator.hasNext(); iterator.next()) {
+            size++;
+        }
+        return size;
+    }
+    
+    @Override
+    public Iterator<String> iterator() {
+        Iterator<?> source = items.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+            
+            @Override
+            public String next() {
+                return templateEngine.renderText(template, contextFactory.apply(source.next()), outputType);
+            }
+        };
+    }
+    
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (items instanceof Collection<?> collection) {
+            generator.writeStartArray(this, collection.size());
+        } else {
+            generator.writeStartArray(this);
+        }
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            for (Object item : items) {
+                templateEngine.render(template, contextFactory.apply(item), buffer);
+                buffer.writeTrimmedTo(generator, outputType);
+            }
+        } finally {
+            buffer.release();
+        }
+        generator.writeEndArray();
+    }
+    
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        // Rendered sequences are plain JSON arrays and carry no type information
+        serialize(generator, provider);
+    }
+    
+    @Override
+    public boolean isEmpty(SerializerProvider provider) {
+        return !items.iterator().hasNext();
+    }
+}
@@ -0,0 +1,55 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * A template bound to its data but not rendered yet.
+ * When Jackson serializes it, the template renders straight into the generator,
+ * so the rendered text never exists as a separate String. It is written as a JSON string unless
+ * the rule asked for another {@link OutputType}. {@link #toString()} renders eagerly the text the value is
+ * serialized as, without JSON string quoting, and fails on invalid typed output just as serialization does.
+ */
+public final class RenderedValue extends JsonSerializable.Base {
+    
+    private final TemplateEngine templateEngine;
+    private final CompiledTemplate template;
+    private final Object dataObject;
+    private final OutputType outputType;
+    
+    RenderedValue(TemplateEngine templateEngine, CompiledTemplate template, Object dataObject, OutputType outputType) {
+        this.templateEngine = templateEngine;
+        this.template = template;
+        this.dataObject = dataObject;
+        this.outputType = outputType;
+    }
+    
+    public String getTemplateName() {
+        return template.getName();
+    }
+    
+    public OutputType getOutputType() {
+        return outputType;
+    }
+    
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        templateEngine.render(template, dataObject, generator, outputType);
+    }
+    
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        // Rendered values are plain JSON values and carry no type information
+        serialize(generator, provider);
+    }
+    
+    @Override
+    public String toString() {
+        return templateEngine.renderText(template, dataObject, outputType);
+    }
+}
@@ -0,0 +1,132 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import com.github.mustachejava.MustacheFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Precomputed form of a template made only of literal text and variable tags
+ * ({@code {{name}}}, {@code {{a.b}}}, {@code {{{raw}}}}, {@code {{&raw}}}).
+ * Rendering appends literals and looked-up values in order, resolving names through maps
+ * the way Mustache.java does for map scopes, without its reflection-based object handler.
+ * Templates with sections, partials, comments, delimiter changes or implicit iterators are not simple.
+ */
+final class SimpleTemplate {
+    
+    private static final Pattern NAME = Pattern.compile("[\\w$-]+(\\.[\\w$-]+)*");
+    
+    private final String[] literals;
+    /** Unsplit names, looked up as literal keys before their dotted segments */
+    private final String[] names;
+    private final String[][] paths;
+    private final boolean[] escaped;
+    private final MustacheFactory encoder;
+    
+    private SimpleTemplate(List<String> literals, List<String> names, List<Boolean> escaped, MustacheFactory encoder) {
+        this.literals = literals.toArray(new String[0]);
+        this.names = names.toArray(new String[0]);
+        this.paths = new String[this.names.length][];
+        for (int i = 0; i < this.names.length; i++) {
+            this.paths[i] = this.names[i].split("\\.");
+        }
+        this.escaped = new boolean[escaped.size()];
+        for (int i = 0; i < this.escaped.length; i++) {
+            this.escaped[i] = escaped.get(i);
+        }
+        this.encoder = encoder;
+    }
+    
+    /**
+     * Split a template into segments, or return null if it uses anything but variable tags
+     *
+     * @param encoder factory whose HTML escaping is applied to escaped variables
+     */
+    static SimpleTemplate parse(String content, MustacheFactory encoder) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> escaped = new ArrayList<>();
+        
+        int position = 0;
+        int open;
+        while ((open = content.indexOf("{{", position)) >= 0) {
+            boolean triple = content.startsWith("{{{", open);
+            String closing = triple ? "}}}" : "}}";
+            int nameStart = open + closing.length();
+            int close = content.indexOf(closing, nameStart);
+            if (close < 0) {
+                return null;
+            }
+        
+            String tag = content.substring(nameStart, close);
+            boolean raw = triple;
+            if (!triple && tag.startsWith("&")) {
+                raw = true;
+                tag = tag.substring(1);
+            }
+            String name = tag.trim();
+            if (!NAME.matcher(name).matches()) {
+                return null;
+            }
+        
+            literals.add(content.substring(position, open));
+            names.add(name);
+            escaped.add(!raw);
+            position = close + closing.length();
+        }
+        literals.add(content.substring(position));
+        
+        return new SimpleTemplate(literals, names, escaped, encoder);
+    }
+    
+    /**
+     * Append the rendered template to a buffer.
+     * Returns false, leaving partial output behind, when a value is found that only
+     * Mustache.java can resolve (a non-map scope, a lambda or an Optional).
+     */
+    boolean render(Object dataObject, RenderBuffer buffer) {
+        for (int i = 0; i < paths.length; i++) {
+            append(buffer, literals[i]);
+        
+            if (!(dataObject instanceof Map<?, ?> root)) {
+                return false;
+            }
+            Object value = dataObject;
+            if (paths[i].length > 1 && root.containsKey(names[i])) {
+                // Like Mustache.java, a key holding the whole dotted name wins over the segments
+                value = root.get(names[i]);
+            } else {
+                for (String name : paths[i]) {
+                    if (!(value instanceof Map<?, ?> map)) {
+                        return false;
+                    }
+                    value = map.get(name);
+                    if (value == null) {
+                        break;
+                    }
+                }
+            }
+            if (value instanceof Callable || value instanceof Function || value instanceof Optional) {
+                return false;
+            }
+            if (value != null) {
+                if (escaped[i]) {
+                    encoder.encode(value.toString(), buffer);
+                } else {
+                    append(buffer, value.toString());
+                }
+            }
+        }
+        append(buffer, literals[paths.length]);
+        return true;
+    }
+    
+    private static void append(RenderBuffer buffer, String text) {
+        buffer.write(text, 0, text.length());
+    }
+}
@@ -0,0 +1,131 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled templates keyed by template name.
+ * An entry is only returned while its version matches the registry version,
+ * so a stale compilation is never rendered even if an invalidation is missed.
+ * Lookups are lock-free; when the cache is full the least recently used entry is evicted.
+ * Recency is approximate: the clock only advances on misses, and a hit stamps its entry with a relaxed
+ * read of it, so hits share no contended counter and a hot entry is written at most once per miss.
+ */
+public class TemplateCache {
+    
+    public static final int DEFAULT_MAX_SIZE = 256;
+    
+    private final int maxSize;
+    private final Map<String, CacheEntry> entries;
+    /** Number of stores; read without ordering on hits */
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public TemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    
+    public TemplateCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Get compiled template for the given name and version, or null on a miss
+     */
+    public CompiledTemplate get(String name, long version) {
+        CacheEntry cached = entries.get(name);
+        if (cached != null && cached.template.getVersion() == version) {
+            // Newer than every entry stored before the latest miss
+            long now = clock.getOpaque() + 1;
+            if (cached.lastAccess != now) {
+                cached.lastAccess = now;
+            }
+            hits.increment();
+            return cached.template;
+        }
+        misses.increment();
+        return null;
+    }
+    
+    /**
+     * Store a compiled template, replacing any older version
+     */
+    public void put(CompiledTemplate template) {
+        CacheEntry entry = new CacheEntry(template, clock.incrementAndGet() + 1);
+        entries.merge(template.getName(), entry,
+                (current, added) -> current.template.getVersion() > added.template.getVersion() ? current : added);
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+    
+    /**
+     * Drop the compiled form of a template
+     */
+    public void invalidate(String name) {
+        entries.remove(name);
+    }
+    
+    /**
+     * Drop all compiled templates
+     */
+    public void clear() {
+        entries.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Evict least recently used entries until the cache fits; only runs on a miss, never on the hit path
+     */
+    private synchronized void evict() {
+        while (entries.size() > maxSize) {
+            Map.Entry<String, CacheEntry> eldest = null;
+            for (Map.Entry<String, CacheEntry> entry : entries.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = entry;
+                }
+            }
+            if (eldest != null && entries.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+    
+    private static final class CacheEntry {
+        private final CompiledTemplate template;
+        /** Plain field: a stale or lost stamp only makes eviction slightly less exact */
+        private long lastAccess;
+        
+        CacheEntry(CompiledTemplate template, long lastAccess) {
+            this.template = template;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -1,40 +1,237 @@
 package it.jedrzejewski.mustachemapper.template;
 
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
 import it.jedrzejewski.mustachemapper.wrapper.JsonNodeWrapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
 
+import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
- * Handles Mustache template compilation and rendering
+ * Handles Mustache template compilation and rendering.
+ * Compiled templates are cached per name and invalidated when the registry changes;
+ * {@link #close()} stops listening to the registry once the engine is no longer used.
+ * Template data is resolved by {@link MapObjectHandler} rather than through reflection.
  */
-public class TemplateEngine {
+public class TemplateEngine implements AutoCloseable {
     
     private final TemplateRegistry templateRegistry;
     private final MustacheFactory mustacheFactory;
+    private final TemplateCache templateCache;
+    private final MapperMetrics metrics;
+    private final Consumer<String> invalidationListener;
     
     public TemplateEngine(TemplateRegistry templateRegistry) {
+        this(templateRegistry, TemplateCache.DEFAULT_MAX_SIZE);
+    }
+    
+    public TemplateEngine(TemplateRegistry templateRegistry, int cacheSize) {
+        this(templateRegistry, cacheSize, MapperMetrics.NOOP);
+    }
+    
+    public TemplateEngine(TemplateRegistry templateRegistry, int cacheSize, MapperMetrics metrics) {
         this.templateRegistry = templateRegistry;
-        this.mustacheFactory = new DefaultMustacheFactory();
+        DefaultMustacheFactory factory = new DefaultMustacheFactory();
+        factory.setObjectHandler(new MapObjectHandler());
+        this.mustacheFactory = factory;
+        this.templateCache = new TemplateCache(cacheSize);
+        this.metrics = metrics;
+        this.invalidationListener = templateCache::invalidate;
+        templateRegistry.addChangeListener(invalidationListener);
     }
     
     /**
      * Render template with data wrapper
      */
     public String render(String templateName, JsonNodeWrapper dataWrapper) {
-        String templateContent = templateRegistry.getTemplate(templateName);
-        return renderTemplate(templateContent, dataWrapper);
+        return render(templateName, (Object) dataWrapper);
     }
     
     /**
      * Render template with any data object (supports both JsonNodeWrapper and MultiSourceDataContext)
      */
     public String render(String templateName, Object dataObject) {
-        String templateContent = templateRegistry.getTemplate(templateName);
-        return renderTemplate(templateContent, dataObject);
+        return render(getCompiledTemplate(templateName), dataObject);
+    }
+    
+    /**
+     * Render a template and convert the trimmed output to a value of the given type,
+     * see {@link RenderBuffer#toTrimmedValue(OutputType)}
+     */
+    public Object render(String templateName, Object dataObject, OutputType outputType) {
+        CompiledTemplate template = getCompiledTemplate(templateName);
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            render(template, dataObject, buffer);
+            return buffer.toTrimmedValue(outputType);
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Render a template straight into a generator as a JSON string value
+     */
+    public void render(String templateName, Object dataObject, JsonGenerator generator) throws IOException {
+        render(getCompiledTemplate(templateName), dataObject, generator, OutputType.STRING);
+    }
+    
+    /**
+     * Render a template straight into a generator as a value of the given type
+     */
+    public void render(String templateName, Object dataObject, JsonGenerator generator, OutputType outputType) throws IOException {
+        render(getCompiledTemplate(templateName), dataObject, generator, outputType);
+    }
+    
+    /**
+     * Render a template once per context, handing each trimmed result to the sink in iteration order.
+     * The template is resolved once and every context renders into the same reused buffer.
+     */
+    public void renderAll(String templateName, Iterable<?> contexts, Consumer<? super String> sink) {
+        renderAll(templateName, contexts, OutputType.STRING, value -> sink.accept((String) value));
+    }
+    
+    /**
+     * Render a template once per context, handing each result converted to the given type to the sink
+     */
+    public void renderAll(String templateName, Iterable<?> contexts, OutputType outputType, Consumer<Object> sink) {
+        CompiledTemplate template = getCompiledTemplate(templateName);
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            for (Object context : contexts) {
+                render(template, context, buffer);
+                sink.accept(buffer.toTrimmedValue(outputType));
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    /**
+     * Bind a template to its data without rendering it. The returned value renders
+     * into the generator when serialized by Jackson, so no intermediate String is created.
+     */
+    public RenderedValue deferRender(String templateName, Object dataObject) {
+        return deferRender(templateName, dataObject, OutputType.STRING);
+    }
+    
+    /**
+     * Bind a template to its data, to be written as a value of the given type when serialized
+     */
+    public RenderedValue deferRender(String templateName, Object dataObject, OutputType outputType) {
+        return new RenderedValue(this, getCompiledTemplate(templateName), dataObject, outputType);
+    }
+    
+    /**
+     * Bind a template to a list of items without rendering any of them. When serialized by Jackson
+     * the items are rendered one by one straight into the generator.
+     * 
+     * @param contextFactory builds the template context of an item
+     */
+    public RenderedSequence deferRenderAll(String templateName, Iterable<?> items, Function<Object, ?> contextFactory) {
+        return deferRenderAll(templateName, items, contextFactory, OutputType.STRING);
+    }
+    
+    /**
+     * Bind a template to a list of items, each to be written as a value of the given type when serialized
+     */
+    public RenderedSequence deferRenderAll(String templateName, Iterable<?> items, Function<Object, ?> contextFactory,
+                                           OutputType outputType) {
+        return new RenderedSequence(this, getCompiledTemplate(templateName), items, contextFactory, outputType);
+    }
+    
+    String render(CompiledTemplate template, Object dataObject) {
+        if (!metrics.isEnabled()) {
+            return template.render(dataObject);
+        }
+        
+        long start = System.nanoTime();
+        String rendered = template.render(dataObject);
+        metrics.recordTemplateRender(template.getName(), System.nanoTime() - start);
+        return rendered;
+    }
+    
+    /**
+     * Render a template to the text its value of the given type is serialized as
+     */
+    String renderText(CompiledTemplate template, Object dataObject, OutputType outputType) {
+        RenderBuffer buffer = RenderBuffer.acquire();
+        try {
+            render(template, dataObject, buffer);
+            return buffer.toTrimmedText(outputType);
+        } finally {
+            buffer.release();
+        }
+    }
+    
+    void render(CompiledTemplate template, Object dataObject, RenderBuffer buffer) {
+        if (!metrics.isEnabled()) {
+            template.render(dataObject, buffer);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        template.render(dataObject, buffer);
+        metrics.recordTemplateRender(template.getName(), System.nanoTime() - start);
+    }
+    
+    void render(CompiledTemplate template, Object dataObject, JsonGenerator generator, OutputType outputType) throws IOException {
+        if (!metrics.isEnabled()) {
+            template.render(dataObject, generator, outputType);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        template.render(dataObject, generator, outputType);
+        metrics.recordTemplateRender(template.getName(), System.nanoTime() - start);
+    }
+    
+    /**
+     * Get the compiled form of a registered template, compiling it on a cache miss
+     */
+    public CompiledTemplate getCompiledTemplate(String templateName) {
+        TemplateRegistry.TemplateEntry entry = templateRegistry.getTemplateEntry(templateName);
+        CompiledTemplate cached = templateCache.get(templateName, entry.getVersion());
+        if (cached != null) {
+            return cached;
+        }
+        
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        CompiledTemplate compiled = compile(templateName, entry.getVersion(), entry.getContent());
+        if (metrics.isEnabled()) {
+            metrics.recordTemplateCompile(templateName, System.nanoTime() - start);
+        }
+        templateCache.put(compiled);
+        return compiled;
+    }
+    
+    /**
+     * Unregister from the template registry so an engine that is no longer used can be collected
+     * while the registry lives on; the cache then relies on its version check alone
+     */
+    @Override
+    public void close() {
+        templateRegistry.removeChangeListener(invalidationListener);
+    }
+    
+    /**
+     * Get the compiled template cache (exposes hit/miss/eviction counters)
+     */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+    
+    /**
+     * Get the metrics this engine and the mappers built on it report to
+     */
+    public MapperMetrics getMetrics() {
+        return metrics;
     }
     
     /**
@@ -45,12 +242,18 @@ public class TemplateEngine {
     }
     
     /**
-     * Render template string with any data object
+     * Render template string with any data object.
+     * Ad-hoc template strings are compiled on every call and are not cached.
      */
     public String renderTemplate(String templateContent, Object dataObject) {
-        Mustache mustache = mustacheFactory.compile(new StringReader(templateContent), "template");
-        StringWriter writer = new StringWriter();
-        mustache.execute(writer, dataObject);
-        return writer.toString().trim();
+        return compile("template", 0, templateContent).render(dataObject);
+    }
+    
+    /**
+     * Compile with Mustache.java and, for templates made only of variable tags, precompute the fast path
+     */
+    private CompiledTemplate compile(String name, long version, String templateContent) {
+        Mustache mustache = mustacheFactory.compile(new StringReader(templateContent), name);
+        return new CompiledTemplate(name, version, mustache, SimpleTemplate.parse(templateContent, mustacheFactory));
     }
 }
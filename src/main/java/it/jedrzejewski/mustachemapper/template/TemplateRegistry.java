@@ -1,18 +1,32 @@
 package it.jedrzejewski.mustachemapper.template;
 
+import lombok.Data;
+
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
- * Registry for managing Mustache templates
+ * Registry for managing Mustache templates.
+ * Templates are kept in an immutable snapshot that is replaced on every change
+ * (copy-on-write), so reads are lock-free and always see a consistent template set.
+ * Writers are serialized; a whole template set can be swapped in atomically.
  */
 public class TemplateRegistry {
     
-    private final Map<String, String> templates;
+    private final Object writeLock = new Object();
+    private final List<Consumer<String>> changeListeners;
+    private volatile Map<String, TemplateEntry> templates;
+    private long nextVersion;
     
     public TemplateRegistry() {
-        this.templates = new HashMap<>();
+        this.templates = Collections.emptyMap();
+        this.changeListeners = new CopyOnWriteArrayList<>();
         initializeDefaultTemplates();
     }
     
@@ -63,24 +77,86 @@ public class TemplateRegistry {
      * Add or update a template
      */
     public void addTemplate(String name, String templateContent) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Template name cannot be null or empty");
+        validate(name, templateContent);
+        synchronized (writeLock) {
+            TemplateEntry current = templates.get(name);
+            if (current != null && current.getContent().equals(templateContent)) {
+                return;
+            }
+            Map<String, TemplateEntry> updated = new HashMap<>(templates);
+            updated.put(name, new TemplateEntry(templateContent, ++nextVersion));
+            templates = Collections.unmodifiableMap(updated);
         }
-        if (templateContent == null) {
-            throw new IllegalArgumentException("Template content cannot be null");
+        notifyChanged(name);
+    }
+    
+    /**
+     * Atomically replace the whole template set, including the default templates.
+     * Readers see either the old or the new set, never a mix. Only templates whose
+     * content changed or that were removed are reported to change listeners.
+     */
+    public void replaceTemplates(Map<String, String> newTemplates) {
+        newTemplates.forEach(TemplateRegistry::validate);
+        Set<String> changed = new HashSet<>();
+        synchronized (writeLock) {
+            Map<String, TemplateEntry> current = templates;
+            Map<String, TemplateEntry> updated = new HashMap<>();
+            for (Map.Entry<String, String> template : newTemplates.entrySet()) {
+                TemplateEntry existing = current.get(template.getKey());
+                if (existing != null && existing.getContent().equals(template.getValue())) {
+                    updated.put(template.getKey(), existing);
+                } else {
+                    updated.put(template.getKey(), new TemplateEntry(template.getValue(), ++nextVersion));
+                    changed.add(template.getKey());
+                }
+            }
+            for (String name : current.keySet()) {
+                if (!updated.containsKey(name)) {
+                    changed.add(name);
+                }
+            }
+            templates = Collections.unmodifiableMap(updated);
         }
-        templates.put(name, templateContent);
+        changed.forEach(this::notifyChanged);
     }
     
     /**
      * Get template by name
      */
     public String getTemplate(String name) {
-        String template = templates.get(name);
-        if (template == null) {
+        return getTemplateEntry(name).getContent();
+    }
+    
+    /**
+     * Get template content together with its version, read from a single snapshot
+     */
+    public TemplateEntry getTemplateEntry(String name) {
+        TemplateEntry entry = templates.get(name);
+        if (entry == null) {
             throw new IllegalArgumentException("Template not found: " + name);
         }
-        return template;
+        return entry;
+    }
+    
+    /**
+     * Get the content version of a template; changes every time the template content changes
+     */
+    public long getTemplateVersion(String name) {
+        return getTemplateEntry(name).getVersion();
+    }
+    
+    /**
+     * Register a listener notified with the template name whenever a template is added, updated or removed
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Unregister a listener added with {@link #addChangeListener}
+     */
+    public void removeChangeListener(Consumer<String> listener) {
+        changeListeners.remove(listener);
     }
     
     /**
@@ -91,7 +167,7 @@ public class TemplateRegistry {
     }
     
     /**
-     * Get all template names
+     * Get all template names (an immutable snapshot)
      */
     public Set<String> getTemplateNames() {
         return templates.keySet();
@@ -101,7 +177,16 @@ public class TemplateRegistry {
      * Remove template
      */
     public boolean removeTemplate(String name) {
-        return templates.remove(name) != null;
+        synchronized (writeLock) {
+            if (!templates.containsKey(name)) {
+                return false;
+            }
+            Map<String, TemplateEntry> updated = new HashMap<>(templates);
+            updated.remove(name);
+            templates = Collections.unmodifiableMap(updated);
+        }
+        notifyChanged(name);
+        return true;
     }
     
     /**
@@ -110,4 +195,28 @@ public class TemplateRegistry {
     public int getTemplateCount() {
         return templates.size();
     }
+    
+    private static void validate(String name, String templateContent) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Template name cannot be null or empty");
+        }
+        if (templateContent == null) {
+            throw new IllegalArgumentException("Template content cannot be null");
+        }
+    }
+    
+    private void notifyChanged(String name) {
+        for (Consumer<String> listener : changeListeners) {
+            listener.accept(name);
+        }
+    }
+    
+    /**
+     * Template content with the version assigned when it was registered
+     */
+    @Data
+    public static class TemplateEntry {
+        private final String content;
+        private final long version;
+    }
 }
@@ -0,0 +1,182 @@
+package it.jedrzejewski.mustachemapper.transform;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Transformers registered in every {@link TransformerRegistry}:
+ * <ul>
+ *   <li>{@code number}: numbers and numeric strings to numbers; option {@code scale} rounds half up to a fixed scale</li>
+ *   <li>{@code boolean}: booleans, "true"/"false" and numbers (non-zero is true) to booleans</li>
+ *   <li>{@code string}: scalars to their string form; maps and lists are left unchanged</li>
+ *   <li>{@code concat}: joins a list (e.g. the values of several jsonPaths), skipping nulls; option {@code separator}</li>
+ *   <li>{@code rename}: renames keys of a map, or of every map in a list; option {@code fields} maps old to new names</li>
+ * </ul>
+ * Values that cannot be converted become null, so the target key is left unset.
+ */
+final class BuiltInTransformers {
+    
+    static final Transformer NUMBER = new Transformer() {
+        @Override
+        public Object transform(Object value) {
+            if (value instanceof Number) {
+                return value;
+            }
+            BigDecimal decimal = toDecimal(value);
+            if (decimal == null) {
+                return null;
+            }
+            if (decimal.scale() <= 0) {
+                try {
+                    return decimal.longValueExact();
+                } catch (ArithmeticException e) {
+                    return decimal.toBigInteger();
+                }
+            }
+            return decimal.doubleValue();
+        }
+        
+        @Override
+        public Transformer configure(Map<String, Object> options) {
+            checkOptions(options, Set.of("scale"));
+            if (!options.containsKey("scale")) {
+                return this;
+            }
+            if (!(options.get("scale") instanceof Integer scale)) {
+                throw new IllegalArgumentException("Option 'scale' must be an integer");
+            }
+            return value -> {
+                BigDecimal decimal = toDecimal(value);
+                return decimal != null ? decimal.setScale(scale, RoundingMode.HALF_UP) : null;
+            };
+        }
+    };
+    
+    static final Transformer BOOLEAN = value -> {
+        if (value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        if (value instanceof String text) {
+            String trimmed = text.trim();
+            if (trimmed.equalsIgnoreCase("true")) {
+                return Boolean.TRUE;
+            }
+            if (trimmed.equalsIgnoreCase("false")) {
+                return Boolean.FALSE;
+            }
+        }
+        return null;
+    };
+    
+    static final Transformer STRING = value -> {
+        if (value == null || value instanceof Map || value instanceof List) {
+            return value;
+        }
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    };
+    
+    static final Transformer CONCAT = new Transformer() {
+        @Override
+        public Object transform(Object value) {
+            return join(value, "");
+        }
+        
+        @Override
+        public Transformer configure(Map<String, Object> options) {
+            checkOptions(options, Set.of("separator"));
+            if (!options.containsKey("separator")) {
+                return this;
+            }
+            if (!(options.get("separator") instanceof String separator)) {
+                throw new IllegalArgumentException("Option 'separator' must be a string");
+            }
+            return value -> join(value, separator);
+        }
+    };
+    
+    static final Transformer RENAME = new Transformer() {
+        @Override
+        public Object transform(Object value) {
+            throw new IllegalStateException("rename must be configured with 'fields'");
+        }
+        
+        @Override
+        public Transformer configure(Map<String, Object> options) {
+            checkOptions(options, Set.of("fields"));
+            if (!(options.get("fields") instanceof Map<?, ?> fields) || fields.isEmpty()) {
+                throw new IllegalArgumentException("Option 'fields' must be a non-empty object of old to new names");
+            }
+            Map<String, String> renames = new LinkedHashMap<>();
+            fields.forEach((from, to) -> renames.put(String.valueOf(from), String.valueOf(to)));
+            return value -> rename(value, renames);
+        }
+    };
+    
+    private BuiltInTransformers() {
+    }
+    
+    private static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Number number) {
+            return number instanceof Double || number instanceof Float
+                ? BigDecimal.valueOf(number.doubleValue())
+                : new BigDecimal(number.toString());
+        }
+        if (value instanceof String text) {
+            try {
+                return new BigDecimal(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    private static Object join(Object value, String separator) {
+        if (!(value instanceof List<?> values)) {
+            return value != null ? value.toString() : null;
+        }
+        StringJoiner joined = new StringJoiner(separator);
+        for (Object element : values) {
+            if (element != null) {
+                joined.add(element.toString());
+            }
+        }
+        return joined.toString();
+    }
+    
+    private static Object rename(Object value, Map<String, String> renames) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> renamed = new LinkedHashMap<>();
+            map.forEach((key, fieldValue) -> renamed.put(renames.getOrDefault(String.valueOf(key), String.valueOf(key)), fieldValue));
+            return renamed;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> renamed = new ArrayList<>(list.size());
+            for (Object element : list) {
+                renamed.add(rename(element, renames));
+            }
+            return renamed;
+        }
+        return value;
+    }
+    
+    private static void checkOptions(Map<String, Object> options, Set<String> supported) {
+        for (String option : options.keySet()) {
+            if (!supported.contains(option)) {
+                throw new IllegalArgumentException("Unknown transformer option '" + option + "', expected one of " + supported);
+            }
+        }
+    }
+}
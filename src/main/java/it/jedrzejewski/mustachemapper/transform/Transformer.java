@@ -0,0 +1,26 @@
+package it.jedrzejewski.mustachemapper.transform;
+
+import java.util.Map;
+
+/**
+ * Extension point behind TRANSFORM rules: turns the value extracted by a rule into a typed
+ * target value (number, boolean, string, map or list) without going through a template.
+ * A rule with several jsonPaths passes the extracted values as a list, in path order.
+ * Implementations must be thread-safe; returning null leaves the target key unset.
+ */
+@FunctionalInterface
+public interface Transformer {
+    
+    Object transform(Object value);
+    
+    /**
+     * Bind the {@code options} of a rule. Called once when a mapping is compiled, so any parsing
+     * of options happens there and not per document. Transformers without options reject them.
+     */
+    default Transformer configure(Map<String, Object> options) {
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Transformer does not take options: " + options.keySet());
+        }
+        return this;
+    }
+}
@@ -0,0 +1,67 @@
+package it.jedrzejewski.mustachemapper.transform;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of named {@link Transformer}s used by TRANSFORM rules.
+ * Transformers are resolved when a mapping is compiled, so registering or replacing a
+ * transformer affects mappings compiled afterwards only.
+ */
+public class TransformerRegistry {
+    
+    private final Map<String, Transformer> transformers = new ConcurrentHashMap<>();
+    
+    public TransformerRegistry() {
+        initializeDefaultTransformers();
+    }
+    
+    private void initializeDefaultTransformers() {
+        register("number", BuiltInTransformers.NUMBER);
+        register("boolean", BuiltInTransformers.BOOLEAN);
+        register("string", BuiltInTransformers.STRING);
+        register("concat", BuiltInTransformers.CONCAT);
+        register("rename", BuiltInTransformers.RENAME);
+    }
+    
+    /**
+     * Add or replace a transformer
+     */
+    public void register(String name, Transformer transformer) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Transformer name cannot be null or empty");
+        }
+        if (transformer == null) {
+            throw new IllegalArgumentException("Transformer cannot be null");
+        }
+        transformers.put(name, transformer);
+    }
+    
+    /**
+     * Get transformer by name
+     */
+    public Transformer getTransformer(String name) {
+        Transformer transformer = transformers.get(name);
+        if (transformer == null) {
+            throw new IllegalArgumentException("Transformer not found: " + name);
+        }
+        return transformer;
+    }
+    
+    /**
+     * Look up a transformer and bind a rule's options to it
+     */
+    public Transformer resolve(String name, Map<String, Object> options) {
+        return getTransformer(name).configure(options != null ? options : Collections.emptyMap());
+    }
+    
+    public boolean hasTransformer(String name) {
+        return transformers.containsKey(name);
+    }
+    
+    public Set<String> getTransformerNames() {
+        return Collections.unmodifiableSet(transformers.keySet());
+    }
+}
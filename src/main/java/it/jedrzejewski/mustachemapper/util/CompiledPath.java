@@ -0,0 +1,594 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * JSONPath-like expression parsed once into typed steps.
+ * Evaluation over Map/List data is a loop over the steps and allocates nothing.
+ * Supports: $.orders, $.user.profile, $.orders[0], $.orders[*], $['odd.key']
+ * <p>
+ * Paths that can select several values - filters ({@code $.orders[?(@.status == 'shipped')]}),
+ * slices ({@code $.orders[1:10]}), recursive descent ({@code $..id}) and wildcards before the last
+ * step ({@code $.orders[*].id}) - evaluate in a single recursive walk that appends every match, in
+ * document order, to one result list. {@link #matches(Object)} walks the same matches lazily together
+ * with the elements selected on the way, e.g. the customer of each order of {@code $.customers[*].orders[*]}.
+ */
+public final class CompiledPath {
+    
+    private static final CompiledPath ROOT = new CompiledPath("$", new Step[0]);
+    
+    private final String expression;
+    private final Step[] steps;
+    private final int evaluatedSteps;
+    private final boolean multiValued;
+    private final boolean nested;
+    
+    private CompiledPath(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+        this.multiValued = hasSelectorBeforeEnd(steps);
+        this.nested = multiValued && isNested(steps);
+        // A trailing wildcard of a single-valued path selects the array itself
+        this.evaluatedSteps = !multiValued && endsWith(steps, StepKind.WILDCARD) ? steps.length - 1 : steps.length;
+    }
+    
+    /**
+     * Parse a JSONPath expression
+     *
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static CompiledPath compile(String jsonPath) {
+        if (jsonPath == null) {
+            throw new IllegalArgumentException("JSONPath cannot be null");
+        }
+        
+        String path = normalizeJsonPath(jsonPath);
+        if (path.isEmpty()) {
+            return jsonPath.equals(ROOT.expression) ? ROOT : new CompiledPath(jsonPath, ROOT.steps);
+        }
+        return new CompiledPath(jsonPath, parseSteps(jsonPath, path));
+    }
+    
+    /**
+     * Evaluate the path against Map/List data
+     *
+     * @return the selected value, or null if any step does not resolve;
+     *         for a {@link #isMultiValued() multi-valued} path, the list of matches (possibly empty)
+     */
+    public Object evaluate(Object root) {
+        if (root instanceof PathEvaluable evaluable) {
+            return evaluable.evaluatePath(this);
+        }
+        return evaluateFrom(root, 0);
+    }
+    
+    /**
+     * Evaluate the remaining steps from an intermediate value, starting at the given step
+     */
+    public Object evaluateFrom(Object current, int firstStep) {
+        if (multiValued) {
+            List<Object> matches = new ArrayList<>();
+            if (current != null) {
+                collect(current, firstStep, matches);
+            }
+            return matches;
+        }
+        for (int i = firstStep; i < evaluatedSteps && current != null; i++) {
+            current = steps[i].apply(current);
+        }
+        return current;
+    }
+    
+    /**
+     * Apply the steps from the given one to a value, appending every value the path reaches
+     */
+    private void collect(Object current, int stepIndex, List<Object> matches) {
+        if (stepIndex == steps.length) {
+            matches.add(current);
+            return;
+        }
+        
+        Step step = steps[stepIndex];
+        switch (step.kind) {
+            case WILDCARD:
+                for (Object child : children(current)) {
+                    collectNonNull(child, stepIndex + 1, matches);
+                }
+                break;
+            case FILTER:
+                for (Object child : children(current)) {
+                    if (child != null && step.filter.test(child)) {
+                        collect(child, stepIndex + 1, matches);
+                    }
+                }
+                break;
+            case SLICE:
+                if (current instanceof List<?> list) {
+                    int size = list.size();
+                    int end = step.sliceEnd == null ? size : bound(step.sliceEnd, size);
+                    for (int i = step.sliceStart == null ? 0 : bound(step.sliceStart, size); i < end; i += step.sliceStep) {
+                        collectNonNull(list.get(i), stepIndex + 1, matches);
+                    }
+                }
+                break;
+            case DESCENDANT:
+                // The next step applies to this value and to every object and array below it
+                collect(current, stepIndex + 1, matches);
+                for (Object child : children(current)) {
+                    if (child instanceof Map || child instanceof List) {
+                        collect(child, stepIndex, matches);
+                    }
+                }
+                break;
+            default:
+                collectNonNull(step.apply(current), stepIndex + 1, matches);
+        }
+    }
+    
+    private void collectNonNull(Object current, int stepIndex, List<Object> matches) {
+        if (current != null) {
+            collect(current, stepIndex, matches);
+        }
+    }
+    
+    private static Collection<?> children(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.values();
+        }
+        return Collections.emptyList();
+    }
+    
+    /**
+     * Clamp a slice bound to [0, size], counting negative bounds from the end
+     */
+    private static int bound(int index, int size) {
+        return index < 0 ? Math.max(size + index, 0) : Math.min(index, size);
+    }
+    
+    public String getExpression() {
+        return expression;
+    }
+    
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(Arrays.asList(steps));
+    }
+    
+    /**
+     * Number of steps {@link #evaluate(Object)} applies (a trailing wildcard is not applied)
+     */
+    public int getEvaluatedStepCount() {
+        return evaluatedSteps;
+    }
+    
+    public Step getStep(int index) {
+        return steps[index];
+    }
+    
+    /**
+     * Check if the path ends with [*], i.e. selects every element of an array
+     */
+    public boolean endsWithWildcard() {
+        return endsWith(steps, StepKind.WILDCARD);
+    }
+    
+    /**
+     * Whether the path can select several values and evaluates to the list of its matches.
+     * True for filters, slices, recursive descent and wildcards other than a single trailing one.
+     */
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+    
+    /**
+     * Whether matches have enclosing elements selected by an earlier [*], filter or slice step,
+     * as in {@code $.customers[*].orders[*]} or {@code $.orders[*].id}. Paths with '..' are never nested.
+     */
+    public boolean isNested() {
+        return nested;
+    }
+    
+    /**
+     * Lazily walk the matches of the path in document order, each linked to the elements its
+     * selector steps passed through. The walk holds one iterator per selector step and builds no lists.
+     *
+     * @throws IllegalStateException for paths with '..', whose matches have no single chain of enclosing elements
+     */
+    public Iterator<Match> matches(Object root) {
+        for (Step step : steps) {
+            if (step.kind == StepKind.DESCENDANT) {
+                throw new IllegalStateException("Path '" + expression + "' uses recursive descent");
+            }
+        }
+        return new MatchIterator(root);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompiledPath other && expression.equals(other.expression);
+    }
+    
+    @Override
+    public int hashCode() {
+        return expression.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return expression;
+    }
+    
+    // ========== Lazy Matches ==========
+    
+    /**
+     * A value selected by a path, with the match of the enclosing selector step
+     */
+    @Getter
+    public static final class Match {
+        private final Object value;
+        /** Null for elements selected directly from the root */
+        private final Match parent;
+        
+        Match(Object value, Match parent) {
+            this.value = value;
+            this.parent = parent;
+        }
+    }
+    
+    /**
+     * Depth-first walk keeping one frame per selector step on the way to the current match
+     */
+    private final class MatchIterator implements Iterator<Match> {
+        private final List<Frame> frames = new ArrayList<>();
+        private Match next;
+        
+        MatchIterator(Object root) {
+            descend(root, 0, null);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (next == null && !frames.isEmpty()) {
+                Frame frame = frames.get(frames.size() - 1);
+                if (!frame.candidates.hasNext()) {
+                    frames.remove(frames.size() - 1);
+                    continue;
+                }
+                Object element = frame.candidates.next();
+                if (element != null) {
+                    Match match = new Match(element, frame.parent);
+                    if (frame.nextStep == steps.length) {
+                        next = match;
+                    } else {
+                        descend(element, frame.nextStep, match);
+                    }
+                }
+            }
+            return next != null;
+        }
+        
+        @Override
+        public Match next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Match match = next;
+            next = null;
+            return match;
+        }
+        
+        /**
+         * Apply field and index steps until the next selector, which opens a frame, or the end, which is a match
+         */
+        private void descend(Object current, int stepIndex, Match parent) {
+            while (stepIndex < steps.length && !steps[stepIndex].isSelector()) {
+                current = steps[stepIndex++].apply(current);
+                if (current == null) {
+                    return;
+                }
+            }
+            if (stepIndex == steps.length) {
+                next = new Match(current, parent);
+            } else {
+                frames.add(new Frame(select(steps[stepIndex], current), stepIndex + 1, parent));
+            }
+        }
+    }
+    
+    private static final class Frame {
+        private final Iterator<?> candidates;
+        /** Step applied to each candidate */
+        private final int nextStep;
+        private final Match parent;
+        
+        Frame(Iterator<?> candidates, int nextStep, Match parent) {
+            this.candidates = candidates;
+            this.nextStep = nextStep;
+            this.parent = parent;
+        }
+    }
+    
+    /**
+     * The elements a selector step picks from a value, produced lazily
+     */
+    private static Iterator<?> select(Step step, Object current) {
+        switch (step.kind) {
+            case FILTER:
+                return children(current).stream().filter(child -> child != null && step.filter.test(child)).iterator();
+            case SLICE:
+                if (!(current instanceof List<?> list)) {
+                    return Collections.emptyIterator();
+                }
+                int size = list.size();
+                int start = step.sliceStart == null ? 0 : bound(step.sliceStart, size);
+                int end = step.sliceEnd == null ? size : bound(step.sliceEnd, size);
+                return IntStream.iterate(start, i -> i < end, i -> i + step.sliceStep).mapToObj(list::get).iterator();
+            default:
+                return children(current).iterator();
+        }
+    }
+    
+    // ========== Parsing ==========
+    
+    private static Step[] parseSteps(String expression, String path) {
+        List<Step> steps = new ArrayList<>();
+        int pos = 0;
+        int length = path.length();
+        
+        while (pos < length) {
+            char c = path.charAt(pos);
+            if (c == '[') {
+                int close = closingBracket(expression, path, pos);
+                steps.add(parseBracket(expression, path.substring(pos + 1, close)));
+                pos = close + 1;
+            } else if (c == '.' && pos + 1 < length && path.charAt(pos + 1) == '.') {
+                pos += 2;
+                if (pos >= length || path.charAt(pos) == '.') {
+                    throw invalid(expression, "'..' must be followed by a field name, * or [");
+                }
+                steps.add(Step.DESCENDANT);
+            } else if (c == '.') {
+                if (pos + 1 >= length || path.charAt(pos + 1) == '[') {
+                    throw invalid(expression, "empty field name");
+                }
+                pos++;
+            } else {
+                int end = pos;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                String name = path.substring(pos, end);
+                steps.add(name.equals("*") ? Step.WILDCARD : Step.field(name));
+                pos = end;
+            }
+        }
+        
+        return steps.toArray(new Step[0]);
+    }
+    
+    /**
+     * Find the ']' closing the bracket at the given position, skipping quoted text and nested brackets
+     */
+    private static int closingBracket(String expression, String path, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        throw invalid(expression, "unclosed '['");
+    }
+    
+    private static Step parseBracket(String expression, String content) {
+        String trimmed = content.trim();
+        if (trimmed.equals("*")) {
+            return Step.WILDCARD;
+        }
+        if (trimmed.startsWith("?")) {
+            return Step.filter(PathFilter.parse(expression, trimmed.substring(1)));
+        }
+        if (trimmed.length() >= 2 && (trimmed.startsWith("'") && trimmed.endsWith("'")
+                || trimmed.startsWith("\"") && trimmed.endsWith("\""))) {
+            return Step.field(trimmed.substring(1, trimmed.length() - 1));
+        }
+        if (trimmed.indexOf(':') >= 0) {
+            return parseSlice(expression, trimmed);
+        }
+        try {
+            return Step.index(Integer.parseInt(trimmed));
+        } catch (NumberFormatException e) {
+            throw invalid(expression, "invalid array index '" + content + "'");
+        }
+    }
+    
+    /**
+     * Parse {@code start:end} or {@code start:end:step}; bounds may be omitted or negative, the step must be positive
+     */
+    private static Step parseSlice(String expression, String content) {
+        String[] parts = content.split(":", -1);
+        if (parts.length > 3) {
+            throw invalid(expression, "invalid slice '" + content + "'");
+        }
+        try {
+            Integer start = parts[0].isBlank() ? null : Integer.valueOf(parts[0].trim());
+            Integer end = parts[1].isBlank() ? null : Integer.valueOf(parts[1].trim());
+            int step = parts.length < 3 || parts[2].isBlank() ? 1 : Integer.parseInt(parts[2].trim());
+            if (step <= 0) {
+                throw invalid(expression, "slice step must be positive");
+            }
+            return Step.slice(start, end, step);
+        } catch (NumberFormatException e) {
+            throw invalid(expression, "invalid slice '" + content + "'");
+        }
+    }
+    
+    static IllegalArgumentException invalid(String expression, String reason) {
+        return new IllegalArgumentException("Invalid JSONPath '" + expression + "': " + reason);
+    }
+    
+    private static boolean endsWith(Step[] steps, StepKind kind) {
+        return steps.length > 0 && steps[steps.length - 1].kind == kind;
+    }
+    
+    private static boolean isNested(Step[] steps) {
+        boolean selectorBeforeLast = false;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].kind == StepKind.DESCENDANT) {
+                return false;
+            }
+            selectorBeforeLast |= i < steps.length - 1 && steps[i].isSelector();
+        }
+        return selectorBeforeLast;
+    }
+    
+    private static boolean hasSelectorBeforeEnd(Step[] steps) {
+        for (int i = 0; i < steps.length; i++) {
+            StepKind kind = steps[i].kind;
+            if (kind != StepKind.FIELD && kind != StepKind.INDEX && (kind != StepKind.WILDCARD || i < steps.length - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Normalize JSONPath (remove leading $. or $)
+     */
+    private static String normalizeJsonPath(String jsonPath) {
+        if (jsonPath.startsWith("$.") && !jsonPath.startsWith("$..")) {
+            return jsonPath.substring(2);
+        } else if (jsonPath.startsWith("$")) {
+            return jsonPath.substring(1);
+        }
+        return jsonPath;
+    }
+    
+    // ========== Steps ==========
+    
+    /**
+     * Kind of a single path step
+     */
+    public enum StepKind {
+        FIELD,
+        INDEX,
+        WILDCARD,
+        /** [start:end:step] over an array */
+        SLICE,
+        /** [?(...)] over array elements or object member values */
+        FILTER,
+        /** .. applying the next step to the current value and everything below it */
+        DESCENDANT
+    }
+    
+    /**
+     * A single typed path step
+     */
+    @Getter
+    public static final class Step {
+        
+        private static final Step WILDCARD = new Step(StepKind.WILDCARD, null, -1, null, null, 1, null);
+        private static final Step DESCENDANT = new Step(StepKind.DESCENDANT, null, -1, null, null, 1, null);
+        
+        private final StepKind kind;
+        private final String name;
+        private final int index;
+        /** Slice bounds, null when omitted */
+        private final Integer sliceStart;
+        private final Integer sliceEnd;
+        private final int sliceStep;
+        @Getter(AccessLevel.NONE)
+        private final PathFilter filter;
+        
+        private Step(StepKind kind, String name, int index, Integer sliceStart, Integer sliceEnd, int sliceStep, PathFilter filter) {
+            this.kind = kind;
+            this.name = name;
+            this.index = index;
+            this.sliceStart = sliceStart;
+            this.sliceEnd = sliceEnd;
+            this.sliceStep = sliceStep;
+            this.filter = filter;
+        }
+        
+        static Step field(String name) {
+            return new Step(StepKind.FIELD, name, -1, null, null, 1, null);
+        }
+        
+        static Step index(int index) {
+            return new Step(StepKind.INDEX, null, index, null, null, 1, null);
+        }
+        
+        static Step slice(Integer start, Integer end, int step) {
+            return new Step(StepKind.SLICE, null, -1, start, end, step, null);
+        }
+        
+        static Step filter(PathFilter filter) {
+            return new Step(StepKind.FILTER, null, -1, null, null, 1, filter);
+        }
+        
+        /**
+         * Whether the step selects any number of elements rather than a single value
+         */
+        boolean isSelector() {
+            return kind == StepKind.WILDCARD || kind == StepKind.FILTER || kind == StepKind.SLICE;
+        }
+        
+        Object apply(Object current) {
+            switch (kind) {
+                case FIELD:
+                    return current instanceof Map<?, ?> map ? map.get(name) : null;
+                case INDEX:
+                    if (current instanceof List<?> list && index >= 0 && index < list.size()) {
+                        return list.get(index);
+                    }
+                    return null;
+                default:
+                    // Selectors of several values are applied by CompiledPath#collect
+                    return null;
+            }
+        }
+        
+        @Override
+        public String toString() {
+            switch (kind) {
+                case FIELD:
+                    return "." + name;
+                case INDEX:
+                    return "[" + index + "]";
+                case SLICE:
+                    return "[" + (sliceStart != null ? sliceStart : "") + ":" + (sliceEnd != null ? sliceEnd : "")
+                        + (sliceStep != 1 ? ":" + sliceStep : "") + "]";
+                case FILTER:
+                    return filter.toString();
+                case DESCENDANT:
+                    return "..";
+                default:
+                    return "[*]";
+            }
+        }
+    }
+}
@@ -1,118 +1,75 @@
 package it.jedrzejewski.mustachemapper.util;
 
-import java.util.List;
+import it.jedrzejewski.mustachemapper.metrics.MapperMetrics;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Utility for extracting data fragments from Map using JSONPath-like syntax
+ * Utility for extracting data fragments from Map using JSONPath-like syntax.
+ * String paths are compiled once into {@link CompiledPath} and cached.
  */
 public class MapPathExtractor {
     
+    private static final int MAX_CACHED_PATHS = 1024;
+    
+    private final Map<String, CompiledPath> compiledPaths = new ConcurrentHashMap<>();
+    private final MapperMetrics metrics;
+    
+    public MapPathExtractor() {
+        this(MapperMetrics.NOOP);
+    }
+    
+    public MapPathExtractor(MapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
     /**
      * Extract data fragment by path
-     * Supports: $.orders, $.user.profile, $.orders[0], $.orders[*]
+     * Supports: $.orders, $.user.profile, $.orders[0], $.orders[*], and as lists of matches
+     * $.orders[?(@.status == 'shipped')], $.orders[1:10], $..id, $.orders[*].id
      */
     public Object extractPath(Map<String, Object> rootData, String jsonPath) {
         if (rootData == null || jsonPath == null) {
             return null;
         }
         
-        // Handle array wildcard specially
-        if (jsonPath.endsWith("[*]")) {
-            String arrayPath = jsonPath.substring(0, jsonPath.length() - 3);
-            return extractSinglePath(rootData, arrayPath);
-        }
-        
-        return extractSinglePath(rootData, jsonPath);
+        return evaluate(compile(jsonPath), rootData);
     }
     
     /**
-     * Extract single path (non-wildcard)
+     * Extract data fragment by precompiled path
      */
-    private Object extractSinglePath(Map<String, Object> rootData, String jsonPath) {
-        String path = normalizeJsonPath(jsonPath);
-        
-        if (path.isEmpty()) {
-            return rootData;
-        }
-        
-        String[] parts = path.split("\\.");
-        Object current = rootData;
-        
-        for (String part : parts) {
-            if (current == null) {
-                return null;
-            }
-            
-            current = processPathPart(current, part);
+    public Object extract(Map<String, Object> rootData, CompiledPath path) {
+        if (rootData == null || path == null) {
+            return null;
         }
         
-        return current;
+        return evaluate(path, rootData);
     }
     
     /**
-     * Process a single path part (field access or array index)
+     * Get the compiled form of a path, reusing a cached instance when possible
      */
-    private Object processPathPart(Object data, String part) {
-        if (part.contains("[") && part.contains("]")) {
-            return processArrayAccess(data, part);
-        } else {
-            if (data instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> map = (Map<String, Object>) data;
-                return map.get(part);
+    public CompiledPath compile(String jsonPath) {
+        CompiledPath path = compiledPaths.get(jsonPath);
+        if (path == null) {
+            path = CompiledPath.compile(jsonPath);
+            if (compiledPaths.size() < MAX_CACHED_PATHS) {
+                compiledPaths.putIfAbsent(jsonPath, path);
             }
-            return null;
         }
+        return path;
     }
     
-    /**
-     * Process array access like "orders[0]"
-     */
-    private Object processArrayAccess(Object data, String part) {
-        String arrayField = part.substring(0, part.indexOf("["));
-        String indexStr = part.substring(part.indexOf("[") + 1, part.indexOf("]"));
-        
-        // Get array data
-        Object arrayData;
-        if (arrayField.isEmpty()) {
-            arrayData = data;
-        } else if (data instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> map = (Map<String, Object>) data;
-            arrayData = map.get(arrayField);
-        } else {
-            return null;
-        }
-        
-        if (!(arrayData instanceof List)) {
-            return null;
-        }
-        
-        @SuppressWarnings("unchecked")
-        List<Object> list = (List<Object>) arrayData;
-        
-        try {
-            int index = Integer.parseInt(indexStr);
-            if (index >= 0 && index < list.size()) {
-                return list.get(index);
-            }
-        } catch (NumberFormatException e) {
-            // Invalid index format
+    private Object evaluate(CompiledPath path, Map<String, Object> rootData) {
+        if (!metrics.isEnabled()) {
+            return path.evaluate(rootData);
         }
         
-        return null;
-    }
-    
-    /**
-     * Normalize JSONPath (remove leading $. or $)
-     */
-    private String normalizeJsonPath(String jsonPath) {
-        if (jsonPath.startsWith("$.")) {
-            return jsonPath.substring(2);
-        } else if (jsonPath.startsWith("$")) {
-            return jsonPath.substring(1);
-        }
-        return jsonPath;
+        long start = System.nanoTime();
+        Object result = path.evaluate(rootData);
+        metrics.recordPathExtraction(System.nanoTime() - start);
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through memory-mapped regions rather than read system calls into a heap copy.
+ * Files larger than a single mapping (2 GB) are mapped region by region as reading proceeds.
+ * Bytes are handed out as they are, so a JSON parser decodes UTF-8 directly from the mapping.
+ */
+public class MappedFileInputStream extends InputStream {
+    
+    /** Size of a mapped region; 1 GB keeps well below the 2 GB limit of a single mapping */
+    private static final long REGION_SIZE = 1L << 30;
+    
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long regionSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long mark;
+    
+    public MappedFileInputStream(Path file) throws IOException {
+        this(file, REGION_SIZE);
+    }
+    
+    MappedFileInputStream(Path file, long regionSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            this.regionSize = regionSize;
+            mapRegion(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        return region.get() & 0xFF;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, region.remaining());
+        region.get(buffer, offset, count);
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long target = Math.min(position() + n, fileSize);
+        long skipped = target - position();
+        seek(target);
+        return skipped;
+    }
+    
+    @Override
+    public int available() {
+        return (int) Math.min(fileSize - position(), Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+    
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position();
+    }
+    
+    @Override
+    public synchronized void reset() throws IOException {
+        seek(mark);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        // Mapped regions are released when garbage collected; the file handle is released now
+        channel.close();
+    }
+    
+    private long position() {
+        return regionStart + region.position();
+    }
+    
+    private boolean ensureRemaining() throws IOException {
+        if (region.hasRemaining()) {
+            return true;
+        }
+        long next = regionStart + region.limit();
+        if (next >= fileSize) {
+            return false;
+        }
+        mapRegion(next);
+        return true;
+    }
+    
+    private void seek(long position) throws IOException {
+        if (position >= regionStart && position <= regionStart + region.limit()) {
+            region.position((int) (position - regionStart));
+        } else {
+            mapRegion(position);
+        }
+    }
+    
+    private void mapRegion(long start) throws IOException {
+        long size = Math.min(regionSize, fileSize - start);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        regionStart = start;
+    }
+}
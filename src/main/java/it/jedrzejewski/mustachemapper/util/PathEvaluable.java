@@ -0,0 +1,13 @@
+package it.jedrzejewski.mustachemapper.util;
+
+/**
+ * Data that evaluates {@link CompiledPath}s itself, more cheaply than step by step
+ * through its Map/List interface
+ */
+public interface PathEvaluable {
+    
+    /**
+     * Evaluate the path with this value as root; same result as the generic evaluation
+     */
+    Object evaluatePath(CompiledPath path);
+}
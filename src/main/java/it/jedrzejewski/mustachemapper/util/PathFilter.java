@@ -0,0 +1,313 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * Predicate of a JSONPath filter step such as {@code [?(@.status == 'shipped' && @.total > 100)]}, parsed once.
+ * Supports comparisons ({@code == != < <= > >=}) between relative paths ({@code @.a.b}, {@code @['key']},
+ * {@code @}) and literals (strings, numbers, true, false, null), existence checks ({@code @.a}),
+ * {@code !}, {@code &&}, {@code ||} and parentheses. Numbers compare by value whatever their type;
+ * ordering between values of different types is false.
+ */
+final class PathFilter {
+    
+    private static final int INCOMPARABLE = 2;
+    
+    private final String source;
+    private final Condition condition;
+    
+    private PathFilter(String source, Condition condition) {
+        this.source = source;
+        this.condition = condition;
+    }
+    
+    /**
+     * Parse the text after {@code ?} in a filter step
+     *
+     * @param expression the whole JSONPath, for error messages
+     * @throws IllegalArgumentException if the filter is malformed
+     */
+    static PathFilter parse(String expression, String source) {
+        Parser parser = new Parser(expression, source);
+        Condition condition = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.pos < source.length()) {
+            throw parser.invalid("unexpected '" + source.substring(parser.pos) + "'");
+        }
+        return new PathFilter(source.trim(), condition);
+    }
+    
+    /**
+     * Whether an array element or object member value is selected
+     */
+    boolean test(Object item) {
+        return condition.test(item);
+    }
+    
+    @Override
+    public String toString() {
+        return "[?" + source + "]";
+    }
+    
+    // ========== Evaluation ==========
+    
+    private interface Condition {
+        boolean test(Object item);
+    }
+    
+    private interface Operand {
+        Object value(Object item);
+    }
+    
+    private static Condition comparison(Operand left, String operator, Operand right) {
+        switch (operator) {
+            case "==":
+                return item -> compare(left.value(item), right.value(item)) == 0;
+            case "!=":
+                return item -> compare(left.value(item), right.value(item)) != 0;
+            case "<":
+                return item -> compare(left.value(item), right.value(item)) == -1;
+            case "<=":
+                return item -> {
+                    int result = compare(left.value(item), right.value(item));
+                    return result == -1 || result == 0;
+                };
+            case ">":
+                return item -> compare(left.value(item), right.value(item)) == 1;
+            default:
+                return item -> {
+                    int result = compare(left.value(item), right.value(item));
+                    return result == 1 || result == 0;
+                };
+        }
+    }
+    
+    /**
+     * -1, 0 or 1 for ordered values; for values that are only equal or not, 0 or {@link #INCOMPARABLE}
+     */
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number a && right instanceof Number b) {
+            return Integer.signum(compareNumbers(a, b));
+        }
+        if (left instanceof String a && right instanceof String b) {
+            return Integer.signum(a.compareTo(b));
+        }
+        return Objects.equals(left, right) ? 0 : INCOMPARABLE;
+    }
+    
+    private static int compareNumbers(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        if (a instanceof BigDecimal || a instanceof BigInteger || b instanceof BigDecimal || b instanceof BigInteger) {
+            return toDecimal(a).compareTo(toDecimal(b));
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+    
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+    
+    private static BigDecimal toDecimal(Number number) {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        return isIntegral(number) ? BigDecimal.valueOf(number.longValue()) : BigDecimal.valueOf(number.doubleValue());
+    }
+    
+    // ========== Parsing ==========
+    
+    /**
+     * Recursive descent over the filter text; {@code ||} binds looser than {@code &&}
+     */
+    private static final class Parser {
+        private final String expression;
+        private final String source;
+        private int pos;
+        
+        Parser(String expression, String source) {
+            this.expression = expression;
+            this.source = source;
+        }
+        
+        Condition parseOr() {
+            Condition condition = parseAnd();
+            while (consume("||")) {
+                Condition left = condition;
+                Condition right = parseAnd();
+                condition = item -> left.test(item) || right.test(item);
+            }
+            return condition;
+        }
+        
+        private Condition parseAnd() {
+            Condition condition = parseUnary();
+            while (consume("&&")) {
+                Condition left = condition;
+                Condition right = parseUnary();
+                condition = item -> left.test(item) && right.test(item);
+            }
+            return condition;
+        }
+        
+        private Condition parseUnary() {
+            skipWhitespace();
+            if (source.startsWith("!", pos) && !source.startsWith("!=", pos)) {
+                pos++;
+                Condition negated = parseUnary();
+                return item -> !negated.test(item);
+            }
+            if (consume("(")) {
+                Condition grouped = parseOr();
+                if (!consume(")")) {
+                    throw invalid("unclosed '(' in filter");
+                }
+                return grouped;
+            }
+            return parseComparison();
+        }
+        
+        private Condition parseComparison() {
+            boolean leftIsPath = peek() == '@';
+            Operand left = parseOperand();
+            String operator = parseOperator();
+            if (operator == null) {
+                if (!leftIsPath) {
+                    throw invalid("expected a comparison in filter");
+                }
+                return item -> left.value(item) != null;
+            }
+            return comparison(left, operator, parseOperand());
+        }
+        
+        private String parseOperator() {
+            skipWhitespace();
+            for (String operator : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+                if (consume(operator)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+        
+        private Operand parseOperand() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '@') {
+                return parsePath();
+            }
+            if (c == '\'' || c == '"') {
+                String literal = parseString(c);
+                return item -> literal;
+            }
+            int start = pos;
+            while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos))
+                    || "+-.".indexOf(source.charAt(pos)) >= 0)) {
+                pos++;
+            }
+            Object literal = literal(source.substring(start, pos));
+            return item -> literal;
+        }
+        
+        /**
+         * A relative path: {@code @} followed by field and index steps, compiled as a path from the element
+         */
+        private Operand parsePath() {
+            int start = ++pos;
+            int depth = 0;
+            char quote = 0;
+            while (pos < source.length()) {
+                char c = source.charAt(pos);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '\'' || c == '"') {
+                    quote = c;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                } else if (depth == 0 && (Character.isWhitespace(c) || "=!<>&|()".indexOf(c) >= 0)) {
+                    break;
+                }
+                pos++;
+            }
+            CompiledPath path = CompiledPath.compile("$" + source.substring(start, pos));
+            if (path.isMultiValued() || path.endsWithWildcard()) {
+                throw invalid("filter paths must select a single value");
+            }
+            return path::evaluate;
+        }
+        
+        private String parseString(char quote) {
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (pos < source.length()) {
+                char c = source.charAt(pos++);
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '\\' && pos < source.length()) {
+                    c = source.charAt(pos++);
+                }
+                value.append(c);
+            }
+            throw invalid("unclosed string in filter");
+        }
+        
+        private Object literal(String token) {
+            switch (token) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                case "":
+                    throw invalid("expected a value in filter");
+                default:
+                    BigDecimal number;
+                    try {
+                        number = new BigDecimal(token);
+                    } catch (NumberFormatException e) {
+                        throw invalid("invalid literal '" + token + "' in filter");
+                    }
+                    try {
+                        return number.longValueExact();
+                    } catch (ArithmeticException e) {
+                        return number;
+                    }
+            }
+        }
+        
+        private boolean consume(String token) {
+            skipWhitespace();
+            if (source.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+        
+        private char peek() {
+            return pos < source.length() ? source.charAt(pos) : 0;
+        }
+        
+        void skipWhitespace() {
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        IllegalArgumentException invalid(String reason) {
+            return CompiledPath.invalid(expression, reason);
+        }
+    }
+}
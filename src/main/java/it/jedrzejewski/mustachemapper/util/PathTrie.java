@@ -0,0 +1,161 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of a document a set of {@link CompiledPath}s can reach, as a tree of steps.
+ * A node is complete when a path ends there: the whole subtree below it is needed.
+ * Anything not reachable through the trie can be skipped when reading a document.
+ */
+public final class PathTrie {
+    
+    private boolean complete;
+    private final Map<String, PathTrie> fields = new HashMap<>();
+    private final Map<Integer, PathTrie> elements = new HashMap<>();
+    /** Applies to every field and element, from a [*] in the middle of a path */
+    private PathTrie anyChild;
+    
+    private PathTrie() {
+    }
+    
+    /**
+     * Build the trie of everything the given paths can select
+     */
+    public static PathTrie of(Collection<CompiledPath> paths) {
+        PathTrie root = new PathTrie();
+        for (CompiledPath path : paths) {
+            root.insert(path);
+        }
+        root.mergeAnyChild();
+        return root;
+    }
+    
+    /**
+     * Whether the whole subtree at this node is needed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * Whether nothing at or below this node is needed
+     */
+    public boolean isEmpty() {
+        return !complete && fields.isEmpty() && elements.isEmpty() && anyChild == null;
+    }
+    
+    /**
+     * The node for an object field, or null if the field is not needed
+     */
+    public PathTrie field(String name) {
+        PathTrie child = fields.get(name);
+        return child != null ? child : anyChild;
+    }
+    
+    /**
+     * The node for an array element, or null if the element is not needed
+     */
+    public PathTrie element(int index) {
+        PathTrie child = elements.get(index);
+        return child != null ? child : anyChild;
+    }
+    
+    /**
+     * Highest array index that can be needed; elements after it can be dropped
+     */
+    public int lastElementIndex() {
+        if (anyChild != null) {
+            return Integer.MAX_VALUE;
+        }
+        int last = -1;
+        for (int index : elements.keySet()) {
+            last = Math.max(last, index);
+        }
+        return last;
+    }
+    
+    private void insert(CompiledPath path) {
+        PathTrie node = this;
+        int stepCount = path.getSteps().size() - (path.endsWithWildcard() ? 1 : 0);
+        
+        for (int i = 0; i < stepCount && !node.complete; i++) {
+            CompiledPath.Step step = path.getSteps().get(i);
+            if (path.isNested() && step.isSelector()) {
+                // Templates can read any field of the enclosing elements
+                node.markComplete();
+                return;
+            }
+            switch (step.getKind()) {
+                case FIELD:
+                    node = node.fields.computeIfAbsent(step.getName(), k -> new PathTrie());
+                    break;
+                case INDEX:
+                    if (step.getIndex() < 0) {
+                        // Never resolves to anything
+                        return;
+                    }
+                    node = node.elements.computeIfAbsent(step.getIndex(), k -> new PathTrie());
+                    break;
+                case WILDCARD:
+                    if (node.anyChild == null) {
+                        node.anyChild = new PathTrie();
+                    }
+                    node = node.anyChild;
+                    break;
+                default:
+                    // Steps that can reach anywhere below need the whole subtree
+                    node.markComplete();
+                    return;
+            }
+        }
+        node.markComplete();
+    }
+    
+    private void markComplete() {
+        complete = true;
+        fields.clear();
+        elements.clear();
+        anyChild = null;
+    }
+    
+    /**
+     * Fold wildcard children into the named fields and indexes, so a lookup needs a single node
+     */
+    private void mergeAnyChild() {
+        if (anyChild != null) {
+            anyChild.mergeAnyChild();
+            for (PathTrie child : fields.values()) {
+                child.merge(anyChild);
+            }
+            for (PathTrie child : elements.values()) {
+                child.merge(anyChild);
+            }
+        }
+        for (PathTrie child : fields.values()) {
+            child.mergeAnyChild();
+        }
+        for (PathTrie child : elements.values()) {
+            child.mergeAnyChild();
+        }
+    }
+    
+    private void merge(PathTrie other) {
+        if (complete) {
+            return;
+        }
+        if (other.complete) {
+            markComplete();
+            return;
+        }
+        other.fields.forEach((name, child) -> fields.computeIfAbsent(name, k -> new PathTrie()).merge(child));
+        other.elements.forEach((index, child) -> elements.computeIfAbsent(index, k -> new PathTrie()).merge(child));
+        if (other.anyChild != null) {
+            if (anyChild == null) {
+                anyChild = new PathTrie();
+            }
+            anyChild.merge(other.anyChild);
+        }
+    }
+}
@@ -2,16 +2,45 @@ package it.jedrzejewski.mustachemapper.wrapper;
 
 import lombok.NoArgsConstructor;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Data context that holds multiple data sources for Mustache templates.
  * Allows templates to access data from multiple JSONPath expressions.
- * Extends HashMap to be directly usable by Mustache templates.
+ * The primary data source is not copied: lookups resolve against a small overlay
+ * of named sources first and then fall through to the primary map, so creating a
+ * context per array item costs a couple of references instead of a full map copy.
+ * <p>
+ * The context is a fully modifiable map, but the primary source never is modified through it:
+ * writes go to the overlay, and removing a key of the primary source hides it behind a tombstone.
  */
 @NoArgsConstructor
-public class MultiSourceDataContext extends HashMap<String, Object> {
+public class MultiSourceDataContext extends AbstractMap<String, Object> {
+    
+    /** Overlay value hiding a key of the primary source */
+    private static final Object REMOVED = new Object();
+    
+    private Map<String, ?> primary = Collections.emptyMap();
+    private Map<String, Object> overlay = Collections.emptyMap();
+    private boolean overlayShared = true;
+    
+    /**
+     * Create a context over a primary source and a prepared overlay of named sources.
+     * The overlay is shared, not copied; it is copied only if this context is modified.
+     */
+    public MultiSourceDataContext(Map<String, ?> primary, Map<String, Object> overlay) {
+        this.primary = primary != null ? primary : Collections.emptyMap();
+        this.overlay = overlay != null ? overlay : Collections.emptyMap();
+        this.overlayShared = true;
+    }
+    
     /**
      * Add a data source with a specific key
      */
@@ -26,8 +55,8 @@ public class MultiSourceDataContext extends HashMap<String, Object> {
      */
     public void setPrimaryDataSource(Map<String, Object> data) {
         if (data != null) {
-            // Add all properties from the primary source directly to the context
-            this.putAll(data);
+            // Properties of the primary source are resolved through the view, not copied
+            this.primary = data;
         }
     }
     
@@ -37,4 +66,153 @@ public class MultiSourceDataContext extends HashMap<String, Object> {
     public void addValue(String key, Object value) {
         this.put(key, value);
     }
-}
\ No newline at end of file
+    
+    @Override
+    public Object get(Object key) {
+        Object value = overlay.get(key);
+        if (value != null || overlay.containsKey(key)) {
+            return value != REMOVED ? value : null;
+        }
+        return primary.get(key);
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        if (overlay.containsKey(key)) {
+            return overlay.get(key) != REMOVED;
+        }
+        return primary.containsKey(key);
+    }
+    
+    @Override
+    public Object put(String key, Object value) {
+        ownOverlay();
+        Object previous = get(key);
+        overlay.put(key, value);
+        return previous;
+    }
+    
+    @Override
+    public Object remove(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        Object previous = get(key);
+        ownOverlay();
+        if (primary.containsKey(key)) {
+            overlay.put((String) key, REMOVED);
+        } else {
+            overlay.remove(key);
+        }
+        return previous;
+    }
+    
+    @Override
+    public void clear() {
+        primary = Collections.emptyMap();
+        overlay = new HashMap<>();
+        overlayShared = false;
+    }
+    
+    /**
+     * Counted from the overlay alone, without merging the sources
+     */
+    @Override
+    public int size() {
+        int size = primary.size();
+        for (Map.Entry<String, Object> entry : overlay.entrySet()) {
+            boolean removed = entry.getValue() == REMOVED;
+            if (primary.containsKey(entry.getKey())) {
+                size -= removed ? 1 : 0;
+            } else {
+                size += removed ? 0 : 1;
+            }
+        }
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Live view of all sources: named sources first, then primary fields they do not shadow.
+     * Nothing is merged or copied; removing through the iterator removes from the context.
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+            
+            @Override
+            public int size() {
+                return MultiSourceDataContext.this.size();
+            }
+        };
+    }
+    
+    private void ownOverlay() {
+        if (overlayShared) {
+            overlay = new HashMap<>(overlay);
+            overlayShared = false;
+        }
+    }
+    
+    /**
+     * Walks a snapshot of the (small) overlay, so removal may change it, and then the primary source in place
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+        private final Object[] named = overlay.entrySet().toArray();
+        private final Iterator<? extends Map.Entry<String, ?>> primaryEntries = primary.entrySet().iterator();
+        private int namedIndex;
+        private Map.Entry<String, Object> next;
+        private String current;
+        
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (namedIndex < named.length) {
+                @SuppressWarnings("unchecked")
+                Map.Entry<String, Object> entry = (Map.Entry<String, Object>) named[namedIndex++];
+                if (entry.getValue() != REMOVED) {
+                    next = new SimpleImmutableEntry<>(entry);
+                    return true;
+                }
+            }
+            while (primaryEntries.hasNext()) {
+                Map.Entry<String, ?> entry = primaryEntries.next();
+                if (!overlay.containsKey(entry.getKey())) {
+                    next = new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> entry = next;
+            next = null;
+            current = entry.getKey();
+            return entry;
+        }
+        
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            MultiSourceDataContext.this.remove(current);
+            current = null;
+        }
+    }
+}
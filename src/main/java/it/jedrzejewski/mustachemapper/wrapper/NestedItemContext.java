@@ -0,0 +1,93 @@
+package it.jedrzejewski.mustachemapper.wrapper;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Template context for one match of a nested path such as {@code $.customers[*].orders[*]}.
+ * Names resolve against the match first and then against each enclosing element outwards, so an
+ * order template can use both {@code {{orderId}}} and {@code {{customerName}}}; {@code {{parent.id}}}
+ * reads the enclosing element only. A match that is not an object is available as {@code {{value}}}.
+ * Nothing is copied: the context only references the match chain.
+ */
+public class NestedItemContext extends AbstractMap<String, Object> {
+    
+    public static final String PARENT = "parent";
+    public static final String VALUE = "value";
+    
+    private final CompiledPath.Match match;
+    
+    public NestedItemContext(CompiledPath.Match match) {
+        this.match = match;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        Object value = match.getValue();
+        if (value instanceof Map<?, ?> map) {
+            Object found = map.get(key);
+            if (found != null || map.containsKey(key)) {
+                return found;
+            }
+        } else if (VALUE.equals(key)) {
+            return value;
+        }
+        if (PARENT.equals(key)) {
+            return match.getParent() != null ? new NestedItemContext(match.getParent()) : null;
+        }
+        
+        for (CompiledPath.Match enclosing = match.getParent(); enclosing != null; enclosing = enclosing.getParent()) {
+            if (enclosing.getValue() instanceof Map<?, ?> map) {
+                Object found = map.get(key);
+                if (found != null || map.containsKey(key)) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        if (match.getValue() instanceof Map<?, ?> map ? map.containsKey(key) : VALUE.equals(key)) {
+            return true;
+        }
+        if (PARENT.equals(key)) {
+            return match.getParent() != null;
+        }
+        for (CompiledPath.Match enclosing = match.getParent(); enclosing != null; enclosing = enclosing.getParent()) {
+            if (enclosing.getValue() instanceof Map<?, ?> map && map.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Merged view of the match and its enclosing elements; materialized on demand, intended for diagnostics
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Deque<CompiledPath.Match> chain = new ArrayDeque<>();
+        for (CompiledPath.Match current = match; current != null; current = current.getParent()) {
+            chain.push(current);
+        }
+        
+        Map<String, Object> merged = new LinkedHashMap<>();
+        for (CompiledPath.Match current : chain) {
+            if (current.getValue() instanceof Map<?, ?> map) {
+                map.forEach((key, value) -> merged.put(String.valueOf(key), value));
+            } else if (current == match) {
+                merged.put(VALUE, current.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(merged).entrySet();
+    }
+}
@@ -1,14 +1,32 @@
 package it.jedrzejewski.mustachemapper;
 
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.config.MappingGroup;
+import it.jedrzejewski.mustachemapper.metrics.InMemoryMapperMetrics;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import com.fasterxml.jackson.core.type.TypeReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 class JsonStructureMapperTest {
     
+    private static final TypeReference<Map<String, Object>> SOURCE_TYPE = new TypeReference<>() {};
+    
     private JsonStructureMapper mapper;
     
     @BeforeEach
@@ -115,4 +133,308 @@ class JsonStructureMapperTest {
         assertTrue(result.contains("ORD-001"), "Result should contain ORD-001. Actual result: " + result);
         assertTrue(result.contains("light"), "Result should contain light. Actual result: " + result);
     }
+    
+    @Test
+    void testCompiledMappingReuse() throws Exception {
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Settings", Map.of(
+                "mapperType", "MUSTACHE",
+                "templateName", "SETTINGS_INFO",
+                "jsonPath", "$.settings"
+            )
+        ));
+        
+        String dark = mapper.transformJsonStructure("{\"settings\": {\"theme\": \"dark\"}}", mapping);
+        String light = mapper.transformJsonStructure("{\"settings\": {\"theme\": \"light\"}}", mapping);
+        
+        assertTrue(dark.contains("Theme: dark"), "Actual result: " + dark);
+        assertTrue(light.contains("Theme: light"), "Actual result: " + light);
+    }
+    
+    @Test
+    void testCompileMappingValidation() {
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Orders", Map.of("mapperType", "UNKNOWN", "jsonPath", "$.orders")
+        )));
+        
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Orders", Map.of("mapperType", "MUSTACHE", "templateName", "MISSING", "jsonPath", "$.orders")
+        )));
+        
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "client", Map.of("Settings", Map.of("mapperType", "COPY"))
+        )));
+    }
+    
+    @Test
+    void testStreamingTransformMatchesStringTransform() throws Exception {
+        String sourceJson = """
+            {
+                "user": {"name": "John", "email": "john@example.com", "profile": {"age": 30, "location": "NYC"}},
+                "settings": {"theme": "dark"}
+            }
+            """;
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "client", Map.of(
+                "UserInfo", Map.of("mapperType", "MUSTACHE", "templateName", "USER_SUMMARY", "jsonPath", "$.user"),
+                "Settings", Map.of("mapperType", "COPY", "jsonPath", "$.settings")
+            )
+        ));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapper.transformJsonStructure(new ByteArrayInputStream(sourceJson.getBytes(StandardCharsets.UTF_8)), mapping, bytes);
+        
+        StringWriter chars = new StringWriter();
+        mapper.transformJsonStructure(new StringReader(sourceJson), mapping, chars);
+        
+        String expected = mapper.transformJsonStructure(sourceJson, mapping);
+        assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(expected, chars.toString());
+    }
+    
+    @Test
+    void testMappedFileTransformMatchesStringTransform(@TempDir Path tempDir) throws Exception {
+        String sourceJson = """
+            {"user": {"name": "Zoë", "email": "zoe@example.com"}, "settings": {"theme": "dark"}}
+            """;
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "client", Map.of(
+                "UserInfo", Map.of("mapperType", "MUSTACHE", "templateName", "USER_SUMMARY", "jsonPath", "$.user"),
+                "Settings", Map.of("mapperType", "COPY", "jsonPath", "$.settings")
+            )
+        ));
+        Path source = Files.writeString(tempDir.resolve("source.json"), sourceJson);
+        String expected = mapper.transformJsonStructure(sourceJson, mapping);
+        
+        Path target = tempDir.resolve("target.json");
+        mapper.transformJsonStructure(source, mapping, target);
+        assertEquals(expected, Files.readString(target));
+        
+        mapper.setSelectiveParsing(true);
+        mapper.setCompactDocuments(true);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        mapper.transformJsonStructure(source, mapping, compact);
+        assertEquals(expected, compact.toString(StandardCharsets.UTF_8));
+        
+        mapper.setStreamingEvaluation(true);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        mapper.transformJsonStructure(source, mapping, streamed);
+        assertEquals(mapper.getObjectMapper().readValue(expected, Map.class),
+            mapper.getObjectMapper().readValue(streamed.toByteArray(), Map.class));
+    }
+    
+    @Test
+    void testTransformRulesProduceTypedValues() throws Exception {
+        String sourceJson = """
+            {"user": {"firstName": "John", "lastName": "Doe", "vip": "true"},
+             "order": {"orderId": "ORD-1", "price": "1299.989", "qty": "2"}}
+            """;
+        mapper.registerTransformer("upper", value -> value.toString().toUpperCase());
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Name", Map.of("mapperType", "TRANSFORM", "transformer", "concat", "options", Map.of("separator", " "),
+                "jsonPath", List.of("$.user.firstName", "$.user.lastName")),
+            "Vip", Map.of("mapperType", "TRANSFORM", "transformer", "boolean", "jsonPath", "$.user.vip"),
+            "Price", Map.of("mapperType", "TRANSFORM", "transformer", "number", "options", Map.of("scale", 2),
+                "jsonPath", "$.order.price"),
+            "Qty", Map.of("mapperType", "TRANSFORM", "transformer", "number", "jsonPath", "$.order.qty"),
+            "Order", Map.of("mapperType", "TRANSFORM", "transformer", "rename", "options", Map.of("fields", Map.of("orderId", "id")),
+                "jsonPath", "$.order"),
+            "Code", Map.of("mapperType", "TRANSFORM", "transformer", "upper", "jsonPath", "$.order.orderId")
+        ));
+        
+        String result = mapper.transformJsonStructure(sourceJson, mapping);
+        
+        assertTrue(result.contains("\"Price\" : 1299.99"));
+        assertEquals(Map.of(
+            "Name", "John Doe", "Vip", true, "Price", 1299.99, "Qty", 2, "Code", "ORD-1",
+            "Order", Map.of("id", "ORD-1", "price", "1299.989", "qty", "2")
+        ), mapper.getObjectMapper().readValue(result, Map.class));
+        
+        mapper.setStreamingEvaluation(true);
+        assertEquals(mapper.getObjectMapper().readValue(result, Map.class),
+            mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+    }
+    
+    @Test
+    void testTransformRuleValidation() {
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Value", Map.of("mapperType", "TRANSFORM", "transformer", "missing", "jsonPath", "$.a")
+        )));
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Value", Map.of("mapperType", "TRANSFORM", "jsonPath", "$.a")
+        )));
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Value", Map.of("mapperType", "TRANSFORM", "transformer", "number", "options", "scale=2", "jsonPath", "$.a")
+        )));
+    }
+    
+    @Test
+    void testFilteredPathsMatchInEveryMode() throws Exception {
+        String sourceJson = """
+            {"orders": [{"orderId": "ORD-1", "status": "shipped", "total": 30},
+                        {"orderId": "ORD-2", "status": "pending", "total": 80},
+                        {"orderId": "ORD-3", "status": "shipped", "total": 120}],
+             "user": {"name": "John"}}
+            """;
+        mapper.registerTemplate("SHIPPED", "{{orderId}} for {{source2.name}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Shipped", Map.of("mapperType", "MUSTACHE", "templateName", "SHIPPED",
+                "jsonPath", List.of("$.orders[?(@.status == 'shipped' && @.total > 50)]", "$.user")),
+            "FirstTwo", Map.of("mapperType", "COPY", "jsonPath", "$.orders[:2].orderId"),
+            "Ids", Map.of("mapperType", "COPY", "jsonPath", "$..orderId")
+        ));
+        Map<String, Object> expected = Map.of(
+            "Shipped", List.of("ORD-3 for John"),
+            "FirstTwo", List.of("ORD-1", "ORD-2"),
+            "Ids", List.of("ORD-1", "ORD-2", "ORD-3")
+        );
+        
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        mapper.setSelectiveParsing(true);
+        mapper.setCompactDocuments(true);
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        mapper.setStreamingEvaluation(true);
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+    }
+    
+    @Test
+    void testNestedArraysRenderOneResultPerLeaf() throws Exception {
+        String sourceJson = """
+            {"customers": [
+                {"name": "Ann", "tier": "gold", "orders": [{"orderId": "O1"}, {"orderId": "O2"}]},
+                {"name": "Bob", "orders": []},
+                {"name": "Cid", "orders": [{"orderId": "O3", "name": "rush"}]}],
+             "shop": {"name": "Main St"}}
+            """;
+        mapper.registerTemplate("LINE", "{{orderId}}:{{parent.name}}:{{tier}}");
+        mapper.registerTemplate("SHOP_LINE", "{{orderId}}@{{source2.name}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Lines", Map.of("mapperType", "MUSTACHE", "templateName", "LINE", "jsonPath", "$.customers[*].orders[*]"),
+            "ShopLines", Map.of("mapperType", "MUSTACHE", "templateName", "SHOP_LINE",
+                "jsonPath", List.of("$.customers[*].orders[*]", "$.shop"))
+        ));
+        Map<String, Object> expected = Map.of(
+            "Lines", List.of("O1:Ann:gold", "O2:Ann:gold", "O3:Cid:"),
+            "ShopLines", List.of("O1@Main St", "O2@Main St", "O3@Main St")
+        );
+        
+        Map<String, Object> sourceData = mapper.getObjectMapper().readValue(sourceJson, SOURCE_TYPE);
+        assertEquals(expected, mapper.applyMapping(sourceData, mapping));
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        mapper.setSelectiveParsing(true);
+        mapper.setCompactDocuments(true);
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        mapper.setStreamingEvaluation(true);
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+    }
+    
+    @Test
+    void testMappingGroupMatchesSeparateTransforms() throws Exception {
+        String sourceJson = """
+            {"user": {"id": "U1", "name": "John"}, "orders": [{"orderId": "O1"}, {"orderId": "O2"}],
+             "trace": {"requestId": "R1"}, "payload": {"large": [1, 2, 3]}}
+            """;
+        mapper.registerTemplate("CLIENT_ORDER", "{{orderId}} for {{source2.name}}");
+        Map<String, CompiledMapping> views = new LinkedHashMap<>();
+        views.put("client", mapper.compileMapping(Map.of(
+            "Orders", Map.of("mapperType", "MUSTACHE", "templateName", "CLIENT_ORDER", "jsonPath", List.of("$.orders[*]", "$.user"))
+        )));
+        views.put("audit", mapper.compileMapping(Map.of(
+            "User", Map.of("mapperType", "COPY", "jsonPath", "$.user"),
+            "Request", Map.of("mapperType", "COPY", "jsonPath", "$.trace.requestId")
+        )));
+        views.put("analytics", mapper.compileMapping(Map.of(
+            "UserId", Map.of("mapperType", "COPY", "jsonPath", "$.user.id"),
+            "OrderIds", Map.of("mapperType", "COPY", "jsonPath", "$.orders[*].orderId")
+        )));
+        MappingGroup group = MappingGroup.of(views);
+        
+        assertEquals(Set.of(CompiledPath.compile("$.user")), group.getSharedPaths());
+        assertEquals(List.of("client", "audit", "analytics"), List.copyOf(group.getMappings().keySet()));
+        
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (Map.Entry<String, CompiledMapping> view : views.entrySet()) {
+            expected.put(view.getKey(), mapper.transformJsonStructure(sourceJson, view.getValue()));
+        }
+        assertEquals(expected, mapper.transformJsonStructure(sourceJson, group));
+        
+        mapper.setSelectiveParsing(true);
+        assertEquals(expected, mapper.transformJsonStructure(sourceJson, group));
+        mapper.setCompactDocuments(true);
+        assertEquals(expected, mapper.transformJsonStructure(sourceJson, group));
+        
+        assertThrows(IllegalArgumentException.class, () -> MappingGroup.of(Map.of()));
+    }
+    
+    @Test
+    void testMustacheOutputTypes() throws Exception {
+        String sourceJson = """
+            {"orders": [{"orderId": "ORD-1", "price": 10.5}, {"orderId": "ORD-2", "price": 3}],
+             "user": {"name": "John", "vip": true}}
+            """;
+        mapper.registerTemplate("PRICE", "{{price}}");
+        mapper.registerTemplate("VIP", "{{vip}}");
+        mapper.registerTemplate("REF", "{\"id\": \"{{orderId}}\", \"price\": {{price}}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Prices", Map.of("mapperType", "MUSTACHE", "templateName", "PRICE", "outputType", "number", "jsonPath", "$.orders[*]"),
+            "Refs", Map.of("mapperType", "MUSTACHE", "templateName", "REF", "outputType", "json", "jsonPath", "$.orders[*]"),
+            "Vip", Map.of("mapperType", "MUSTACHE", "templateName", "VIP", "outputType", "BOOLEAN", "jsonPath", "$.user")
+        ));
+        Map<String, Object> expected = Map.of(
+            "Prices", List.of(10.5, 3),
+            "Refs", List.of(Map.of("id", "ORD-1", "price", 10.5), Map.of("id", "ORD-2", "price", 3)),
+            "Vip", true
+        );
+        
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        
+        Map<String, Object> sourceData = mapper.getObjectMapper().readValue(sourceJson, SOURCE_TYPE);
+        Map<String, Object> eager = mapper.applyMapping(sourceData, mapping);
+        assertEquals(List.of(10.5, 3L), eager.get("Prices"));
+        assertEquals(true, eager.get("Vip"));
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.getObjectMapper().writeValueAsString(eager), Map.class));
+        
+        mapper.setStreamingEvaluation(true);
+        assertEquals(expected, mapper.getObjectMapper().readValue(mapper.transformJsonStructure(sourceJson, mapping), Map.class));
+        
+        assertThrows(IllegalArgumentException.class, () -> mapper.compileMapping(Map.of(
+            "Vip", Map.of("mapperType", "MUSTACHE", "templateName", "VIP", "outputType", "date", "jsonPath", "$.user")
+        )));
+    }
+    
+    @Test
+    void testRenderingFailuresAreNotWrappedBySerialization() throws Exception {
+        mapper.registerTemplate("PRICE", "{{price}}");
+        Map<String, Object> config = Map.of(
+            "Price", Map.of("mapperType", "MUSTACHE", "templateName", "PRICE", "outputType", "number", "jsonPath", "$.order")
+        );
+        String sourceJson = "{\"order\": {\"price\": \"x1\"}}";
+        
+        assertThrows(IllegalArgumentException.class, () -> mapper.transformJsonStructure(sourceJson, mapper.compileMapping(config)));
+        
+        JsonStructureMapper measured = new JsonStructureMapper(new InMemoryMapperMetrics());
+        measured.registerTemplate("PRICE", "{{price}}");
+        assertThrows(IllegalArgumentException.class, () -> measured.transformJsonStructure(sourceJson, measured.compileMapping(config)));
+    }
+    
+    @Test
+    void testInvalidTypedOutputFailsTheSameWayInEveryMode() throws Exception {
+        mapper.registerTemplate("RAW", "{{{value}}}");
+        Map<String, String> invalid = Map.of("number", "x1", "boolean", "TRUE", "json", "{\"a\":1} {\"b\":2}");
+        
+        for (boolean streaming : List.of(false, true)) {
+            mapper.setStreamingEvaluation(streaming);
+            for (Map.Entry<String, String> output : invalid.entrySet()) {
+                String sourceJson = mapper.getObjectMapper().writeValueAsString(
+                    Map.of("item", Map.of("value", output.getValue()), "arr", List.of(Map.of("value", output.getValue()))));
+                for (String jsonPath : List.of("$.item", "$.arr[*]")) {
+                    CompiledMapping mapping = mapper.compileMapping(Map.of(
+                        "Value", Map.of("mapperType", "MUSTACHE", "templateName", "RAW", "outputType", output.getKey(), "jsonPath", jsonPath)
+                    ));
+                    assertThrows(IllegalArgumentException.class, () -> mapper.transformJsonStructure(sourceJson, mapping),
+                        output.getKey() + " " + jsonPath + (streaming ? " streaming" : ""));
+                }
+            }
+        }
+    }
 }
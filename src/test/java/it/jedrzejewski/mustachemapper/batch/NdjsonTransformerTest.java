@@ -0,0 +1,77 @@
+package it.jedrzejewski.mustachemapper.batch;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonTransformerTest {
+    
+    private static final String NDJSON = """
+        {"user": {"name": "John", "email": "john@example.com"}, "settings": {"theme": "dark"}}
+        {"user": {"name": "Jane", "email": "jane@example.com"}, "settings": {"theme": "light"}}
+        
+        {"user": {"name": "Bob", "email": "bob@example.com"}}
+        """;
+    
+    private JsonStructureMapper mapper;
+    private CompiledMapping mapping;
+    
+    @BeforeEach
+    void setUp() {
+        mapper = new JsonStructureMapper();
+        mapper.registerTemplate("NAME_ONLY", "{{name}}");
+        mapping = mapper.compileMapping(Map.of(
+            "Name", Map.of("mapperType", "MUSTACHE", "templateName", "NAME_ONLY", "jsonPath", "$.user"),
+            "Theme", Map.of("mapperType", "COPY", "jsonPath", "$.settings.theme")
+        ));
+    }
+    
+    @Test
+    void testOneOutputLinePerDocument() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        BatchResult result = mapper.transformNdjson(
+            new ByteArrayInputStream(NDJSON.getBytes(StandardCharsets.UTF_8)), mapping, out);
+        
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, result.getDocumentCount());
+        assertEquals(3, lines.size());
+        assertEquals(Map.of("Name", "John", "Theme", "dark"), mapper.getObjectMapper().readValue(lines.get(0), Map.class));
+        assertEquals(Map.of("Name", "Jane", "Theme", "light"), mapper.getObjectMapper().readValue(lines.get(1), Map.class));
+        assertEquals(Map.of("Name", "Bob"), mapper.getObjectMapper().readValue(lines.get(2), Map.class));
+        assertTrue(result.getDocumentsPerSecond() > 0);
+    }
+    
+    @Test
+    void testFileToFile(@TempDir Path tempDir) throws Exception {
+        Path source = Files.writeString(tempDir.resolve("in.ndjson"), NDJSON);
+        Path target = tempDir.resolve("out.ndjson");
+        
+        BatchResult result = new NdjsonTransformer(mapper).transform(source, mapping, target);
+        
+        assertEquals(3, result.getDocumentCount());
+        assertEquals(3, Files.readAllLines(target).size());
+    }
+    
+    @Test
+    void testEmptyInput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        BatchResult result = mapper.transformNdjson(new ByteArrayInputStream(new byte[0]), mapping, out);
+        
+        assertEquals(0, result.getDocumentCount());
+        assertEquals(0, out.size());
+    }
+}
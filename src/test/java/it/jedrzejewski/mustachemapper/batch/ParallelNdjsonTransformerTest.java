@@ -0,0 +1,139 @@
+package it.jedrzejewski.mustachemapper.batch;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelNdjsonTransformerTest {
+    
+    private static final int DOCUMENTS = 500;
+    
+    private JsonStructureMapper mapper;
+    private CompiledMapping mapping;
+    private ExecutorService executor;
+    private String input;
+    
+    @BeforeEach
+    void setUp() {
+        mapper = new JsonStructureMapper();
+        mapper.registerTemplate("ORDER_LINE", "{{orderId}}: {{productName}}");
+        mapping = mapper.compileMapping(Map.of(
+            "Orders", Map.of("mapperType", "MUSTACHE", "templateName", "ORDER_LINE", "jsonPath", "$.orders[*]")
+        ));
+        executor = Executors.newFixedThreadPool(4);
+        input = IntStream.range(0, DOCUMENTS)
+            .mapToObj(i -> "{\"orders\": [{\"orderId\": \"ORD-" + i + "\", \"productName\": \"Item " + i + "\"}]}")
+            .collect(Collectors.joining("\n"));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testOrderedOutputMatchesSequentialOutput() throws Exception {
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        mapper.transformNdjson(stream(input), mapping, sequential);
+        
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        BatchResult result = new ParallelNdjsonTransformer(mapper, executor, 8, true)
+            .transform(stream(input), mapping, parallel);
+        
+        assertEquals(DOCUMENTS, result.getDocumentCount());
+        assertEquals(sequential.toString(StandardCharsets.UTF_8), parallel.toString(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void testUnorderedOutputContainsEveryDocument() throws Exception {
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        BatchResult result = new ParallelNdjsonTransformer(mapper, executor, 3, false)
+            .transform(stream(input), mapping, parallel);
+        
+        List<String> lines = parallel.toString(StandardCharsets.UTF_8).lines().sorted().toList();
+        List<String> expected = IntStream.range(0, DOCUMENTS)
+            .mapToObj(i -> "{\"Orders\":[\"ORD-" + i + ": Item " + i + "\"]}")
+            .sorted()
+            .toList();
+        
+        assertEquals(DOCUMENTS, result.getDocumentCount());
+        assertEquals(expected, lines);
+    }
+    
+    @Test
+    void testLinesAreSplitOnBytesAcrossBufferBoundaries() throws Exception {
+        String longName = "é".repeat(100_000);
+        String crlfInput = "{\"orders\": [{\"orderId\": \"A\", \"productName\": \"" + longName + "\"}]}\r\n"
+            + "  \r\n"
+            + "{\"orders\": [{\"orderId\": \"B\", \"productName\": \"Pen\"}]}";
+        
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        BatchResult result = new ParallelNdjsonTransformer(mapper, executor, 2, true)
+            .transform(stream(crlfInput), mapping, parallel);
+        
+        assertEquals(2, result.getDocumentCount());
+        assertEquals(List.of("{\"Orders\":[\"A: " + longName + "\"]}", "{\"Orders\":[\"B: Pen\"]}"),
+                     parallel.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+    
+    @Test
+    void testOutputIsBufferedRatherThanWrittenPerDocument() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        OutputStream counting = new FilterOutputStream(parallel) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writes.incrementAndGet();
+                out.write(b, off, len);
+            }
+            
+            @Override
+            public void write(int b) throws IOException {
+                writes.incrementAndGet();
+                out.write(b);
+            }
+        };
+        
+        new ParallelNdjsonTransformer(mapper, executor).transform(stream(input), mapping, counting);
+        
+        assertEquals(DOCUMENTS, parallel.toString(StandardCharsets.UTF_8).lines().count());
+        assertTrue(writes.get() < DOCUMENTS, "writes: " + writes.get());
+    }
+    
+    @Test
+    void testMalformedDocumentFailsTheBatch() {
+        String broken = "{\"orders\": []}\n{not json}\n{\"orders\": []}";
+        ParallelNdjsonTransformer transformer = new ParallelNdjsonTransformer(mapper, executor);
+        
+        assertThrows(JsonProcessingException.class,
+            () -> transformer.transform(stream(broken), mapping, new ByteArrayOutputStream()));
+    }
+    
+    @Test
+    void testInvalidWindowSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelNdjsonTransformer(mapper, executor, 0, true));
+    }
+    
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,128 @@
+package it.jedrzejewski.mustachemapper.document;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactDocumentTest {
+    
+    private static final String SOURCE = """
+        {
+            "user": {"name": "Zoë", "age": 30, "score": 4.5, "active": true, "manager": null},
+            "orders": [{"orderId": "A", "total": 12345678901}, {"orderId": "B", "tags": ["x", "y"]}],
+            "big": 123456789012345678901234567890,
+            "empty": {},
+            "none": []
+        }
+        """;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    void testViewsEqualRegularBinding() throws Exception {
+        Map<String, Object> expected = objectMapper.readValue(SOURCE, new TypeReference<>() {});
+        
+        Map<String, Object> root = read(SOURCE, null);
+        
+        assertEquals(expected, root);
+        assertEquals(expected.hashCode(), root.hashCode());
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(root));
+    }
+    
+    @Test
+    void testPathsEvaluateLikeRegularData() throws Exception {
+        Map<String, Object> expected = objectMapper.readValue(SOURCE, new TypeReference<>() {});
+        Map<String, Object> root = read(SOURCE, null);
+        
+        for (String path : List.of("$", "$.user.name", "$.user.age", "$.user.manager", "$.orders[1].tags[0]",
+                                   "$.orders[*]", "$.orders[5]", "$.user.name.first", "$.missing", "$.big")) {
+            CompiledPath compiled = CompiledPath.compile(path);
+            assertEquals(compiled.evaluate(expected), compiled.evaluate(root), path);
+        }
+    }
+    
+    @Test
+    void testWideObjectsAndDuplicateKeys() throws Exception {
+        String wide = IntStream.range(0, 100).mapToObj(i -> "\"f" + i + "\": " + i).collect(Collectors.joining(",", "{", "}"));
+        Map<String, Object> root = read(wide, null);
+        
+        assertEquals(100, root.size());
+        assertEquals(42, root.get("f42"));
+        assertNull(root.get("f100"));
+        assertEquals("second", read("{\"a\": \"first\", \"a\": \"second\"}", null).get("a"));
+    }
+    
+    @Test
+    void testShadowedDuplicateKeysAreNotListed() throws Exception {
+        Map<String, Object> root = read("{\"a\": 1, \"b\": true, \"a\": 2}", null);
+        
+        assertEquals(2, root.size());
+        assertEquals(Map.of("a", 2, "b", true), root);
+        assertEquals(List.of("b", "a"), List.copyOf(root.keySet()));
+        
+        String wide = IntStream.range(0, 20).mapToObj(i -> "\"f" + (i % 18) + "\": " + i).collect(Collectors.joining(",", "{", "}"));
+        Map<String, Object> wideRoot = read(wide, null);
+        assertEquals(18, wideRoot.size());
+        assertEquals(18, wideRoot.entrySet().stream().count());
+        assertEquals(19, wideRoot.get("f1"));
+        
+        JsonStructureMapper mapper = new JsonStructureMapper();
+        mapper.setCompactDocuments(true);
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "target", Map.of("Copy", Map.of("mapperType", "COPY", "jsonPath", "$.source"))
+        ));
+        String result = mapper.transformJsonStructure("{\"source\": {\"a\": 1, \"a\": 2}}", mapping);
+        assertEquals(Map.of("target", Map.of("Copy", Map.of("a", 2))), objectMapper.readValue(result, new TypeReference<Map<String, Object>>() {}));
+    }
+    
+    @Test
+    void testSelectiveRead() throws Exception {
+        PathTrie paths = PathTrie.of(List.of(CompiledPath.compile("$.user.name"), CompiledPath.compile("$.orders[1]")));
+        
+        Map<String, Object> root = read(SOURCE, paths);
+        
+        assertEquals(Map.of("name", "Zoë"), root.get("user"));
+        assertEquals(Arrays.asList(null, Map.of("orderId", "B", "tags", List.of("x", "y"))), root.get("orders"));
+        assertFalse(root.containsKey("big"));
+    }
+    
+    @Test
+    void testMapperWithCompactDocumentsMatchesRegularTransform() throws Exception {
+        JsonStructureMapper mapper = new JsonStructureMapper();
+        CompiledMapping mapping = mapper.compileMapping(load("/examples/multi-source-config.json"));
+        String source = objectMapper.writeValueAsString(load("/examples/multi-source-data.json"));
+        String expected = mapper.transformJsonStructure(source, mapping);
+        
+        mapper.setCompactDocuments(true);
+        assertEquals(expected, mapper.transformJsonStructure(source, mapping));
+        
+        mapper.setSelectiveParsing(true);
+        assertEquals(expected, mapper.transformJsonStructure(source, mapping));
+    }
+    
+    private Map<String, Object> read(String json, PathTrie paths) throws Exception {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return CompactDocument.read(parser, paths).getRoot();
+        }
+    }
+    
+    private Map<String, Object> load(String resource) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return objectMapper.readValue(in, new TypeReference<>() {});
+        }
+    }
+}
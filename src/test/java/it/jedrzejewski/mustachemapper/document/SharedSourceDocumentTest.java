@@ -0,0 +1,51 @@
+package it.jedrzejewski.mustachemapper.document;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedSourceDocumentTest {
+    
+    @Test
+    void testSharedPathsAreEvaluatedOnce() {
+        Map<String, Integer> lookups = new HashMap<>();
+        Map<String, Object> source = new HashMap<>(Map.of("user", Map.of("name", "John"), "orders", List.of(1, 2))) {
+            @Override
+            public Object get(Object key) {
+                lookups.merge(String.valueOf(key), 1, Integer::sum);
+                return super.get(key);
+            }
+        };
+        CompiledPath user = CompiledPath.compile("$.user");
+        CompiledPath missing = CompiledPath.compile("$.missing");
+        SharedSourceDocument shared = new SharedSourceDocument(source, Set.of(user, missing));
+        
+        assertEquals(Map.of("name", "John"), CompiledPath.compile("$.user").evaluate(shared));
+        assertEquals("John", CompiledPath.compile("$.user.name").evaluate(shared));
+        assertEquals(Map.of("name", "John"), user.evaluate(shared));
+        assertNull(missing.evaluate(shared));
+        assertNull(missing.evaluate(shared));
+        assertEquals(List.of(1, 2), CompiledPath.compile("$.orders[*]").evaluate(shared));
+        assertEquals(List.of(1, 2), CompiledPath.compile("$.orders[*]").evaluate(shared));
+        
+        assertEquals(2, lookups.get("user"));
+        assertEquals(1, lookups.get("missing"));
+        assertEquals(2, lookups.get("orders"));
+    }
+    
+    @Test
+    void testViewIsReadOnly() {
+        SharedSourceDocument shared = new SharedSourceDocument(new HashMap<>(Map.of("a", 1)), Set.of());
+        
+        assertEquals(1, shared.get("a"));
+        assertEquals(Map.of("a", 1), shared);
+        assertThrows(UnsupportedOperationException.class, () -> shared.put("b", 2));
+        assertThrows(UnsupportedOperationException.class, () -> shared.entrySet().clear());
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -164,4 +165,34 @@ class MultiSourceMustacheMapperTest {
         // Should handle empty path list gracefully
         assertDoesNotThrow(() -> mustacheMapper.processMapping(sourceData, targetData, "result", rule));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testSecondarySourcesResolvedOncePerRule() {
+        AtomicInteger userLookups = new AtomicInteger();
+        Map<String, Object> sourceData = new HashMap<>() {
+            @Override
+            public Object get(Object key) {
+                if ("user".equals(key)) {
+                    userLookups.incrementAndGet();
+                }
+                return super.get(key);
+            }
+        };
+        sourceData.put("orders", List.of(
+            Map.of("orderId", "ORD001"), Map.of("orderId", "ORD002"), Map.of("orderId", "ORD003")));
+        sourceData.put("user", Map.of("name", "Jane"));
+        Map<String, Object> targetData = new HashMap<>();
+        
+        MappingConfiguration.MappingRule rule = new MappingConfiguration.MappingRule(
+            MapperType.MUSTACHE,
+            "ARRAY_MULTI_SOURCE",
+            Arrays.asList("$.orders[*]", "$.user")
+        );
+        
+        mustacheMapper.processMapping(sourceData, targetData, "results", rule);
+        
+        assertEquals(List.of("Order: ORD001 for Jane", "Order: ORD002 for Jane", "Order: ORD003 for Jane"),
+            targetData.get("results"));
+        assertEquals(1, userLookups.get());
+    }
+}
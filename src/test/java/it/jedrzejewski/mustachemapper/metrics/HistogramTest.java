@@ -0,0 +1,46 @@
+package it.jedrzejewski.mustachemapper.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    
+    @Test
+    void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+    
+    @Test
+    void testPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1);
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 * 0.125);
+        assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 * 0.125);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+    }
+    
+    @Test
+    void testBucketsCoverEveryValue() {
+        for (long value : new long[] {0, 1, 7, 8, 15, 16, 17, 1023, 1024, Long.MAX_VALUE}) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.bucketUpperBound(index) >= value, "upper bound of " + value);
+            assertTrue(index == 0 || Histogram.bucketUpperBound(index - 1) < value, "lower bound of " + value);
+        }
+    }
+    
+    @Test
+    void testInvalidPercentile() {
+        assertThrows(IllegalArgumentException.class, () -> new Histogram().getPercentile(101));
+    }
+}
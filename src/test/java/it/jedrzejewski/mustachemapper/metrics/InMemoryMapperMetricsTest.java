@@ -0,0 +1,100 @@
+package it.jedrzejewski.mustachemapper.metrics;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryMapperMetricsTest {
+    
+    private static final String SOURCE = """
+        {"user": {"name": "John"}, "orders": [{"orderId": "A"}, {"orderId": "B"}, {"orderId": "C"}]}
+        """;
+    
+    @Test
+    void testEveryStageIsRecorded() throws Exception {
+        InMemoryMapperMetrics metrics = new InMemoryMapperMetrics();
+        JsonStructureMapper mapper = new JsonStructureMapper(metrics);
+        mapper.registerTemplate("NAME_ONLY", "{{name}}");
+        mapper.registerTemplate("ORDER_ID", "{{orderId}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Customer", Map.of(
+                "Name", Map.of("mapperType", "MUSTACHE", "templateName", "NAME_ONLY", "jsonPath", "$.user")
+            ),
+            "Orders", Map.of("mapperType", "MUSTACHE", "templateName", "ORDER_ID", "jsonPath", "$.orders[*]"),
+            "User", Map.of("mapperType", "COPY", "jsonPath", "$.user")
+        ));
+        
+        mapper.transformJsonStructure(SOURCE, mapping);
+        mapper.transformJsonStructure(SOURCE, mapping);
+        
+        assertEquals(2, metrics.getParseTimes().getCount());
+        assertEquals(2, metrics.getSerializationTimes().getCount());
+        assertEquals(6, metrics.getPathExtractionTimes().getCount());
+        assertEquals(1, metrics.getCompileTimes().get("NAME_ONLY").getCount());
+        assertEquals(2, metrics.getRenderTimes().get("NAME_ONLY").getCount());
+        assertEquals(6, metrics.getRenderTimes().get("ORDER_ID").getCount());
+        assertEquals(2, metrics.getRuleTimes().get("Customer.Name").getCount());
+        assertEquals(2, metrics.getRuleTimes().get("Orders").getCount());
+        assertEquals(2, metrics.getRuleTimes().get("User").getCount());
+    }
+    
+    @Test
+    void testRenderingIsTimedWithinItsRule() throws Exception {
+        List<String> stages = new ArrayList<>();
+        MapperMetrics metrics = new MapperMetrics() {
+            @Override
+            public void recordTemplateRender(String templateName, long nanos) {
+                stages.add("render");
+            }
+            
+            @Override
+            public void recordRule(String targetPath, long nanos) {
+                stages.add("rule");
+            }
+            
+            @Override
+            public void recordSerialization(long nanos) {
+                stages.add("serialization");
+            }
+        };
+        JsonStructureMapper mapper = new JsonStructureMapper(metrics);
+        mapper.registerTemplate("NAME_ONLY", "{{name}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Name", Map.of("mapperType", "MUSTACHE", "templateName", "NAME_ONLY", "jsonPath", "$.user")
+        ));
+        
+        mapper.transformJsonStructure(SOURCE, mapping);
+        
+        assertEquals(List.of("render", "rule", "serialization"), stages);
+    }
+    
+    @Test
+    void testStreamedRulesAreRecorded() throws Exception {
+        InMemoryMapperMetrics metrics = new InMemoryMapperMetrics();
+        JsonStructureMapper mapper = new JsonStructureMapper(metrics);
+        mapper.registerTemplate("ORDER_ID", "{{orderId}}");
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Orders", Map.of("mapperType", "MUSTACHE", "templateName", "ORDER_ID", "jsonPath", "$.orders[*]"),
+            "User", Map.of("mapperType", "COPY", "jsonPath", "$.user")
+        ));
+        mapper.setStreamingEvaluation(true);
+        
+        mapper.transformJsonStructure(SOURCE, mapping);
+        
+        assertEquals(1, metrics.getRuleTimes().get("Orders").getCount());
+        assertEquals(1, metrics.getRuleTimes().get("User").getCount());
+        assertEquals(3, metrics.getRenderTimes().get("ORDER_ID").getCount());
+    }
+    
+    @Test
+    void testMapperDefaultsToNoop() {
+        assertSame(MapperMetrics.NOOP, new JsonStructureMapper().getMetrics());
+        assertFalse(MapperMetrics.NOOP.isEnabled());
+    }
+}
@@ -0,0 +1,90 @@
+package it.jedrzejewski.mustachemapper.stream;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import it.jedrzejewski.mustachemapper.util.PathTrie;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectiveSourceReaderTest {
+    
+    private static final String SOURCE = """
+        {
+            "user": {"name": "John", "email": "john@example.com"},
+            "orders": [{"orderId": "A", "notes": "x"}, {"orderId": "B", "notes": "y"}, {"orderId": "C"}],
+            "audit": {"events": [1, 2, 3], "nested": {"deep": true}},
+            "version": 3
+        }
+        """;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SelectiveSourceReader reader = new SelectiveSourceReader(objectMapper);
+    
+    @Test
+    void testUnreferencedSubtreesAreSkipped() throws Exception {
+        Map<String, Object> source = read(SOURCE, "$.user.name", "$.orders[*]");
+        
+        assertEquals(Map.of("name", "John"), source.get("user"));
+        assertEquals(3, ((List<?>) source.get("orders")).size());
+        assertFalse(source.containsKey("audit"));
+        assertFalse(source.containsKey("version"));
+    }
+    
+    @Test
+    void testIndexedElementsKeepTheirPosition() throws Exception {
+        Map<String, Object> source = read(SOURCE, "$.orders[1].orderId");
+        
+        assertEquals(Arrays.asList(null, Map.of("orderId", "B")), source.get("orders"));
+        assertEquals("B", CompiledPath.compile("$.orders[1].orderId").evaluate(source));
+    }
+    
+    @Test
+    void testRootPathReadsEverything() throws Exception {
+        Map<String, Object> full = objectMapper.readValue(SOURCE, new TypeReference<>() {});
+        
+        assertEquals(full, read(SOURCE, "$"));
+    }
+    
+    @Test
+    void testNonObjectSourceIsRejected() {
+        assertThrows(MismatchedInputException.class, () -> read("[1, 2]", "$.user"));
+        assertThrows(MismatchedInputException.class, () -> read("", "$.user"));
+    }
+    
+    @Test
+    void testSelectiveTransformMatchesFullParse() throws Exception {
+        JsonStructureMapper mapper = new JsonStructureMapper();
+        Map<String, Object> config = load("/examples/multi-source-config.json");
+        CompiledMapping mapping = mapper.compileMapping(config);
+        String sourceJson = objectMapper.writeValueAsString(load("/examples/multi-source-data.json"));
+        
+        String expected = mapper.transformJsonStructure(sourceJson, mapping);
+        mapper.setSelectiveParsing(true);
+        
+        assertEquals(expected, mapper.transformJsonStructure(sourceJson, mapping));
+    }
+    
+    private Map<String, Object> read(String json, String... paths) throws Exception {
+        PathTrie trie = PathTrie.of(Arrays.stream(paths).map(CompiledPath::compile).toList());
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return reader.read(parser, trie);
+        }
+    }
+    
+    private Map<String, Object> load(String resource) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return objectMapper.readValue(in, new TypeReference<>() {});
+        }
+    }
+}
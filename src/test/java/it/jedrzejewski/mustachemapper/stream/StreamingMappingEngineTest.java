@@ -0,0 +1,142 @@
+package it.jedrzejewski.mustachemapper.stream;
+
+import it.jedrzejewski.mustachemapper.JsonStructureMapper;
+import it.jedrzejewski.mustachemapper.config.CompiledMapping;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMappingEngineTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonStructureMapper mapper;
+    
+    @BeforeEach
+    void setUp() {
+        mapper = new JsonStructureMapper();
+        mapper.registerTemplate("ORDER_LINE", "{{orderId}} for {{source2.name}}");
+        mapper.registerTemplate("NAME_ONLY", "{{name}}");
+    }
+    
+    @Test
+    void testExampleConfigurationsMatchRegularTransform() throws Exception {
+        assertSameResult(load("/examples/multi-source-config.json"), load("/examples/multi-source-data.json"));
+        assertSameResult(load("/examples/mapping-config.json"), load("/examples/sample-data.json"));
+    }
+    
+    @Test
+    void testSecondarySourceAfterArrayFallsBackToCapture() throws Exception {
+        String source = """
+            {"orders": [{"orderId": "A"}, {"orderId": "B"}], "user": {"name": "John"}}
+            """;
+        
+        Map<String, Object> result = transform(source, Map.of(
+            "Orders", rule("ORDER_LINE", List.of("$.orders[*]", "$.user"))
+        ));
+        
+        assertEquals(List.of("A for John", "B for John"), result.get("Orders"));
+    }
+    
+    @Test
+    void testTargetKeysFollowConfigurationOrder() throws Exception {
+        String source = """
+            {"user": {"name": "John"}, "orders": [{"orderId": "A"}], "theme": "dark"}
+            """;
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("Theme", Map.of("mapperType", "COPY", "jsonPath", "$.theme"));
+        config.put("Client", Map.of(
+            "Orders", rule("ORDER_LINE", List.of("$.orders[*]", "$.user")),
+            "Missing", Map.of("mapperType", "COPY", "jsonPath", "$.nothing")
+        ));
+        config.put("Name", rule("NAME_ONLY", List.of("$.user")));
+        
+        Map<String, Object> result = transform(source, config);
+        
+        assertEquals(List.of("Theme", "Client", "Name"), new ArrayList<>(result.keySet()));
+        assertEquals(Map.of("Orders", List.of("A for John")), result.get("Client"));
+        assertEquals("John", result.get("Name"));
+    }
+    
+    @Test
+    void testArrayElementsAreWrittenBeforeTheDocumentEnds() throws Exception {
+        int orders = 20_000;
+        String head = "{\"user\": {\"name\": \"John\"}, \"orders\": ["
+            + IntStream.range(0, orders).mapToObj(i -> "{\"orderId\": \"ORD-" + i + "\"}").collect(Collectors.joining(","));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger writtenBeforeEnd = new AtomicInteger(-1);
+        InputStream tail = new InputStream() {
+            private final InputStream rest = new ByteArrayInputStream("]}".getBytes(StandardCharsets.UTF_8));
+            
+            @Override
+            public int read() throws IOException {
+                if (writtenBeforeEnd.get() < 0) {
+                    writtenBeforeEnd.set(out.size());
+                }
+                return rest.read();
+            }
+        };
+        CompiledMapping mapping = mapper.compileMapping(Map.of(
+            "Orders", rule("ORDER_LINE", List.of("$.orders[*]", "$.user"))
+        ));
+        
+        mapper.setStreamingEvaluation(true);
+        mapper.transformJsonStructure(new SequenceInputStream(
+            new ByteArrayInputStream(head.getBytes(StandardCharsets.UTF_8)), tail), mapping, out);
+        
+        assertTrue(writtenBeforeEnd.get() > 0, "rendered elements should be flushed while the array is parsed");
+        List<?> rendered = (List<?>) objectMapper.readValue(out.toByteArray(), new TypeReference<Map<String, Object>>() {}).get("Orders");
+        assertEquals(orders, rendered.size());
+        assertEquals("ORD-19999 for John", rendered.get(orders - 1));
+    }
+    
+    private void assertSameResult(Map<String, Object> config, Map<String, Object> data) throws Exception {
+        String source = objectMapper.writeValueAsString(data);
+        CompiledMapping mapping = mapper.compileMapping(config);
+        
+        String expected = mapper.transformJsonStructure(source, mapping);
+        mapper.setStreamingEvaluation(true);
+        String actual = mapper.transformJsonStructure(source, mapping);
+        mapper.setStreamingEvaluation(false);
+        
+        assertEquals(expected, actual);
+    }
+    
+    private Map<String, Object> transform(String source, Map<String, Object> config) throws Exception {
+        CompiledMapping mapping = mapper.compileMapping(config);
+        String expected = mapper.transformJsonStructure(source, mapping);
+        
+        mapper.setStreamingEvaluation(true);
+        String actual = mapper.transformJsonStructure(source, mapping);
+        
+        // Streaming is a performance switch only: the output must be identical, key order included
+        assertEquals(expected, actual);
+        return objectMapper.readValue(actual, new TypeReference<LinkedHashMap<String, Object>>() {});
+    }
+    
+    private static Map<String, Object> rule(String templateName, List<String> jsonPaths) {
+        return Map.of("mapperType", "MUSTACHE", "templateName", templateName, "jsonPath", jsonPaths);
+    }
+    
+    private Map<String, Object> load(String resource) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            return objectMapper.readValue(in, new TypeReference<LinkedHashMap<String, Object>>() {});
+        }
+    }
+}
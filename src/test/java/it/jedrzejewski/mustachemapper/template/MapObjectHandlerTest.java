@@ -0,0 +1,78 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.wrapper.MultiSourceDataContext;
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.util.Wrapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapObjectHandlerTest {
+    
+    @Test
+    void testOutputMatchesReflectionHandler() {
+        Map<String, Object> nothing = new HashMap<>();
+        nothing.put("inner", "x");
+        nothing.put("empty", null);
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "John");
+        data.put("dotted.key", "literal");
+        data.put("profile", Map.of("age", 30, "address", Map.of("city", "NYC")));
+        data.put("orders", List.of(
+            Map.of("orderId", "ORD-1", "profile", Map.of("age", 7)),
+            Map.of("orderId", "ORD-2", "name", "Inner")));
+        data.put("tags", List.of("a", "b"));
+        data.put("nothing", nothing);
+        data.put("active", true);
+        data.put("title", "abc");
+        
+        for (String template : List.of(
+                "{{name}} {{profile.age}} {{profile.address.city}} {{dotted.key}}",
+                "{{#orders}}[{{orderId}} {{name}} {{profile.age}} {{profile.address.city}}]{{/orders}}",
+                "{{#tags}}<{{.}} {{name}}>{{/tags}}",
+                "{{#active}}{{name}}{{/active}} {{^missing}}none{{/missing}}",
+                "{{nothing.empty.deeper}} {{nothing.inner}} {{missing.name}} {{title.length}}",
+                "{{#profile}}{{age}} {{address.city}} {{name}}{{/profile}}")) {
+            assertEquals(render(new DefaultMustacheFactory(), template, data),
+                render(mapFactory(), template, data), template);
+        }
+    }
+    
+    @Test
+    void testResolvesMultiSourceContext() {
+        MultiSourceDataContext context = new MultiSourceDataContext(
+            Map.of("orderId", "ORD-1"), Map.of("source2", Map.of("name", "John")));
+        
+        assertEquals("ORD-1 John", render(mapFactory(), "{{orderId}} {{source2.name}}", context));
+    }
+    
+    @Test
+    void testMapScopesUseDirectLookups() {
+        MapObjectHandler handler = new MapObjectHandler();
+        
+        Wrapper mapWrapper = handler.find("source2.name", List.of(Map.of("source2", Map.of("name", "John"))));
+        Wrapper reflectionWrapper = handler.find("length", List.of("text"));
+        
+        assertEquals("John", mapWrapper.call(List.of(Map.of("source2", Map.of("name", "John")))));
+        assertSame(mapWrapper, handler.find("source2.name", List.of(Map.of())));
+        assertNotSame(mapWrapper.getClass(), reflectionWrapper.getClass());
+    }
+    
+    private static DefaultMustacheFactory mapFactory() {
+        DefaultMustacheFactory factory = new DefaultMustacheFactory();
+        factory.setObjectHandler(new MapObjectHandler());
+        return factory;
+    }
+    
+    private static String render(DefaultMustacheFactory factory, String template, Object data) {
+        StringWriter writer = new StringWriter();
+        factory.compile(new StringReader(template), "template").execute(writer, data);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleTemplateTest {
+    
+    private final MustacheFactory factory = new DefaultMustacheFactory();
+    
+    @Test
+    void testDetectsVariableOnlyTemplates() {
+        assertNotNull(SimpleTemplate.parse("Order: {{orderId}} - {{ product.name }}", factory));
+        assertNotNull(SimpleTemplate.parse("{{{raw}}} {{&raw}} plain text", factory));
+        assertNull(SimpleTemplate.parse("{{#items}}{{name}}{{/items}}", factory));
+        assertNull(SimpleTemplate.parse("{{> partial}}", factory));
+        assertNull(SimpleTemplate.parse("{{! comment }}", factory));
+        assertNull(SimpleTemplate.parse("{{=<% %>=}}", factory));
+        assertNull(SimpleTemplate.parse("{{.}}", factory));
+        assertNull(SimpleTemplate.parse("unclosed {{name", factory));
+    }
+    
+    @Test
+    void testOutputMatchesMustache() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "A<&>\"'`=b");
+        data.put("price", 1299.99);
+        data.put("profile", Map.of("age", 30, "tags", List.of("x", "y")));
+        data.put("missing", null);
+        data.put("dotted.key", "literal");
+        data.put("dotted", Map.of("key", "nested"));
+        
+        for (String template : List.of(
+                "Name: {{name}}, Price: ${{price}}",
+                "{{{name}}} {{& name}} {{ name }}",
+                "Age: {{profile.age}}, Tags: {{profile.tags}}, Unknown: {{profile.unknown}}",
+                "[{{missing}}][{{missing.deeper}}][{{absent.deeper}}][{{profile}}]",
+                "{{dotted.key}} {{{dotted.key}}}")) {
+            assertEquals(renderWithMustache(template, data), renderSimple(template, data), template);
+        }
+    }
+    
+    @Test
+    void testFallsBackOutsideMaps() {
+        SimpleTemplate template = SimpleTemplate.parse("{{name.length}}", factory);
+        
+        assertFalse(template.render(Map.of("name", "John"), new RenderBuffer()));
+        assertFalse(template.render("not a map", new RenderBuffer()));
+    }
+    
+    @Test
+    void testCompiledTemplateFallbackMatchesMustache() {
+        TemplateEngine engine = new TemplateEngine(new TemplateRegistry());
+        CompiledTemplate compiled = engine.getCompiledTemplate("SIMPLE_ORDER");
+        
+        assertTrue(compiled.isSimple());
+        assertFalse(new TemplateEngine(registryWith("LIST", "{{#items}}{{.}}{{/items}}")).getCompiledTemplate("LIST").isSimple());
+        assertEquals("3", new TemplateEngine(registryWith("LENGTH", "{{name.length}}")).render("LENGTH", Map.of("name", "abc")));
+    }
+    
+    private static TemplateRegistry registryWith(String name, String content) {
+        TemplateRegistry registry = new TemplateRegistry();
+        registry.addTemplate(name, content);
+        return registry;
+    }
+    
+    private String renderSimple(String template, Object data) {
+        RenderBuffer buffer = new RenderBuffer();
+        assertTrue(SimpleTemplate.parse(template, factory).render(data, buffer));
+        return buffer.toString();
+    }
+    
+    private String renderWithMustache(String template, Object data) {
+        StringWriter writer = new StringWriter();
+        factory.compile(new StringReader(template), "t" + template.hashCode()).execute(writer, data);
+        return writer.toString();
+    }
+}
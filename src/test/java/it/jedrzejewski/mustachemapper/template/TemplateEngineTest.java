@@ -0,0 +1,214 @@
+package it.jedrzejewski.mustachemapper.template;
+
+import it.jedrzejewski.mustachemapper.config.OutputType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateEngineTest {
+    
+    private TemplateRegistry registry;
+    private TemplateEngine engine;
+    
+    @BeforeEach
+    void setUp() {
+        registry = new TemplateRegistry();
+        engine = new TemplateEngine(registry, 2);
+        registry.addTemplate("GREETING", "Hello {{name}}!");
+    }
+    
+    @Test
+    void testCompiledTemplateIsReused() {
+        assertEquals("Hello John!", engine.render("GREETING", Map.of("name", "John")));
+        assertEquals("Hello Jane!", engine.render("GREETING", Map.of("name", "Jane")));
+        
+        TemplateCache cache = engine.getTemplateCache();
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertSame(engine.getCompiledTemplate("GREETING"), engine.getCompiledTemplate("GREETING"));
+    }
+    
+    @Test
+    void testUpdatedTemplateIsRecompiled() {
+        engine.render("GREETING", Map.of("name", "John"));
+        
+        registry.addTemplate("GREETING", "Hi {{name}}");
+        
+        assertEquals(0, engine.getTemplateCache().size());
+        assertEquals("Hi John", engine.render("GREETING", Map.of("name", "John")));
+    }
+    
+    @Test
+    void testRemovedTemplateIsInvalidated() {
+        engine.render("GREETING", Map.of("name", "John"));
+        registry.removeTemplate("GREETING");
+        
+        assertEquals(0, engine.getTemplateCache().size());
+        assertThrows(IllegalArgumentException.class, () -> engine.render("GREETING", Map.of()));
+    }
+    
+    @Test
+    void testClosedEngineStopsListeningButRendersCurrentTemplate() {
+        engine.render("GREETING", Map.of("name", "John"));
+        engine.close();
+        registry.addTemplate("GREETING", "Hi {{name}}");
+        
+        assertEquals(1, engine.getTemplateCache().size());
+        assertEquals("Hi John", engine.render("GREETING", Map.of("name", "John")));
+    }
+    
+    @Test
+    void testLeastRecentlyUsedTemplateIsEvicted() {
+        engine.render("GREETING", Map.of("name", "John"));
+        engine.render("SETTINGS_INFO", Map.of("theme", "dark"));
+        engine.render("GREETING", Map.of("name", "John"));
+        engine.render("SIMPLE_ORDER", Map.of("orderId", "ORD-1"));
+        
+        TemplateCache cache = engine.getTemplateCache();
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        
+        engine.render("GREETING", Map.of("name", "John"));
+        assertEquals(2, cache.getHitCount());
+    }
+    
+    @Test
+    void testReplaceTemplatesInvalidatesOnlyChangedTemplates() {
+        engine.render("GREETING", Map.of("name", "John"));
+        engine.render("SETTINGS_INFO", Map.of("theme", "dark"));
+        CompiledTemplate settings = engine.getCompiledTemplate("SETTINGS_INFO");
+        
+        registry.replaceTemplates(Map.of(
+            "GREETING", "Bye {{name}}",
+            "SETTINGS_INFO", registry.getTemplate("SETTINGS_INFO")
+        ));
+        
+        assertSame(settings, engine.getCompiledTemplate("SETTINGS_INFO"));
+        assertEquals("Bye John", engine.render("GREETING", Map.of("name", "John")));
+    }
+    
+    @Test
+    void testRenderTrimsWithoutChangingInnerWhitespace() {
+        registry.addTemplate("PADDED", "\n  {{name}}\n  line two \n\n");
+        
+        assertEquals("John\n  line two", engine.render("PADDED", Map.of("name", "John")));
+    }
+    
+    @Test
+    void testDeferredRenderSerializesLikeEagerRender() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Object> john = Map.of("name", "John \"Q\"");
+        
+        RenderedValue deferred = engine.deferRender("GREETING", john);
+        
+        assertEquals(objectMapper.writeValueAsString(List.of(engine.render("GREETING", john))),
+                     objectMapper.writeValueAsString(List.of(deferred)));
+        assertEquals(engine.render("GREETING", john), deferred.toString());
+    }
+    
+    @Test
+    void testNestedRenderOnSameThreadUsesSeparateBuffer() {
+        registry.addTemplate("OUTER", "[{{#inner}}{{name}}{{/inner}}]");
+        Function<String, String> inner = name -> engine.render("GREETING", Map.of("name", name));
+        
+        assertEquals("[Hello John!]", engine.render("OUTER", Map.of("inner", inner, "name", "John")));
+    }
+    
+    @Test
+    void testDeferredSequenceRendersItemsWhileSerializing() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> names = List.of("John", "Jane");
+        List<Object> contexts = new ArrayList<>();
+        
+        RenderedSequence sequence = engine.deferRenderAll("GREETING", names, name -> {
+            Map<String, Object> context = Map.of("name", name);
+            contexts.add(context);
+            return context;
+        });
+        
+        assertTrue(contexts.isEmpty());
+        assertEquals("{\"greetings\":[\"Hello John!\",\"Hello Jane!\"]}",
+                     objectMapper.writeValueAsString(Map.of("greetings", sequence)));
+        assertEquals(2, contexts.size());
+        assertEquals(List.of("Hello John!", "Hello Jane!"), StreamSupport.stream(sequence.spliterator(), false).toList());
+    }
+    
+    @Test
+    void testRenderAllCompilesOnceAndEmitsInOrder() {
+        List<String> results = new ArrayList<>();
+        
+        engine.renderAll("GREETING", List.of(Map.of("name", "John"), Map.of("name", "Jane"), Map.of()), results::add);
+        
+        assertEquals(List.of("Hello John!", "Hello Jane!", "Hello !"), results);
+        assertEquals(1, engine.getTemplateCache().getMissCount());
+        assertEquals(0, engine.getTemplateCache().getHitCount());
+    }
+    
+    @Test
+    void testTypedRenderMatchesDeferredSerialization() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        registry.addTemplate("AMOUNT", " {{amount}} ");
+        registry.addTemplate("FLAG", "{{flag}}");
+        registry.addTemplate("FRAGMENT", "{\"id\": \"{{id}}\", \"tags\": [{{{tags}}}]}");
+        Map<String, Object> data = Map.of("amount", "12.50", "flag", true, "id", "A-1", "tags", "1, 2");
+        
+        assertEquals(12.5, engine.render("AMOUNT", data, OutputType.NUMBER));
+        assertEquals(9007199254740993L, engine.render("AMOUNT", Map.of("amount", 9007199254740993L), OutputType.NUMBER));
+        assertEquals(true, engine.render("FLAG", data, OutputType.BOOLEAN));
+        assertNull(engine.render("AMOUNT", Map.of(), OutputType.NUMBER));
+        
+        String deferred = objectMapper.writeValueAsString(List.of(
+            engine.deferRender("AMOUNT", data, OutputType.NUMBER),
+            engine.deferRender("FLAG", data, OutputType.BOOLEAN),
+            engine.deferRender("FRAGMENT", data, OutputType.JSON),
+            engine.deferRender("AMOUNT", Map.of(), OutputType.NUMBER)));
+        assertEquals("[12.50,true,{\"id\": \"A-1\", \"tags\": [1, 2]},null]", deferred);
+        assertEquals("12.50", engine.deferRender("AMOUNT", data, OutputType.NUMBER).toString());
+        assertEquals("true", engine.deferRender("FLAG", data, OutputType.BOOLEAN).toString());
+        assertEquals("{\"id\": \"A-1\", \"tags\": [1, 2]}", engine.deferRender("FRAGMENT", data, OutputType.JSON).toString());
+        assertEquals("null", engine.deferRender("AMOUNT", Map.of(), OutputType.NUMBER).toString());
+        assertThrows(IllegalArgumentException.class, () -> engine.deferRender("FLAG", Map.of("flag", "yes"), OutputType.BOOLEAN).toString());
+        assertEquals(objectMapper.readTree(deferred), objectMapper.readTree(objectMapper.writeValueAsString(Arrays.asList(
+            engine.render("AMOUNT", data, OutputType.NUMBER),
+            engine.render("FLAG", data, OutputType.BOOLEAN),
+            engine.render("FRAGMENT", data, OutputType.JSON),
+            engine.render("AMOUNT", Map.of(), OutputType.NUMBER)))));
+    }
+    
+    @Test
+    void testInvalidTypedOutputIsRejected() {
+        registry.addTemplate("VALUE", "{{value}}");
+        
+        for (String invalid : List.of("12a", "01", "1.", "-", "1e", "+1", ".5")) {
+            assertThrows(IllegalArgumentException.class,
+                () -> engine.render("VALUE", Map.of("value", invalid), OutputType.NUMBER), invalid);
+        }
+        assertEquals(-0.5e-3, engine.render("VALUE", Map.of("value", "-0.5E-3"), OutputType.NUMBER));
+        assertThrows(IllegalArgumentException.class, () -> engine.render("VALUE", Map.of("value", "yes"), OutputType.BOOLEAN));
+    }
+    
+    @Test
+    void testInvalidJsonOutputIsRejected() {
+        registry.addTemplate("PATH", "{\"path\": \"{{p}}\"}");
+        registry.addTemplate("QUOTE", "{\"text\": \"{{{p}}}\"}");
+        registry.addTemplate("VALUE", "{{{value}}}");
+        
+        assertThrows(IllegalArgumentException.class, () -> engine.render("PATH", Map.of("p", "C:\\qa"), OutputType.JSON));
+        assertThrows(IllegalArgumentException.class, () -> engine.render("QUOTE", Map.of("p", "say \"hi\""), OutputType.JSON));
+        assertThrows(IllegalArgumentException.class, () -> engine.render("VALUE", Map.of("value", "{\"a\": 1} {}"), OutputType.JSON));
+        assertThrows(IllegalArgumentException.class, () -> engine.render("VALUE", Map.of("value", "[1, 2"), OutputType.JSON));
+        assertThrows(Exception.class, () -> new ObjectMapper().writeValueAsString(
+            engine.deferRender("PATH", Map.of("p", "C:\\qa"), OutputType.JSON)));
+        assertEquals(new RawValue("[1, \"a\"]"), engine.render("VALUE", Map.of("value", "[1, \"a\"]"), OutputType.JSON));
+    }
+}
@@ -2,6 +2,16 @@ package it.jedrzejewski.mustachemapper.template;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TemplateRegistryTest {
@@ -68,4 +78,62 @@ class TemplateRegistryTest {
         assertTrue(names.contains("USER_SUMMARY"));
         assertTrue(names.contains("SETTINGS_INFO"));
     }
+    
+    @Test
+    void testReplaceTemplatesReportsOnlyChanges() {
+        List<String> changed = new ArrayList<>();
+        registry.replaceTemplates(Map.of("A", "a", "B", "b"));
+        registry.addChangeListener(changed::add);
+        long versionA = registry.getTemplateVersion("A");
+        
+        registry.replaceTemplates(Map.of("A", "a", "B", "b2", "C", "c"));
+        
+        assertEquals(Set.of("B", "C"), new HashSet<>(changed));
+        assertEquals(versionA, registry.getTemplateVersion("A"));
+        assertEquals(Set.of("A", "B", "C"), registry.getTemplateNames());
+        assertFalse(registry.hasTemplate("ORDER_DETAIL"));
+    }
+    
+    @Test
+    void testUnchangedContentKeepsVersion() {
+        long version = registry.getTemplateVersion("ORDER_DETAIL");
+        registry.addTemplate("ORDER_DETAIL", registry.getTemplate("ORDER_DETAIL"));
+        assertEquals(version, registry.getTemplateVersion("ORDER_DETAIL"));
+        
+        registry.addTemplate("ORDER_DETAIL", "changed");
+        assertNotEquals(version, registry.getTemplateVersion("ORDER_DETAIL"));
+    }
+    
+    @Test
+    void testTemplateNamesAreASnapshot() {
+        Set<String> names = registry.getTemplateNames();
+        registry.addTemplate("LATER", "content");
+        
+        assertFalse(names.contains("LATER"));
+        assertThrows(UnsupportedOperationException.class, () -> names.remove("ORDER_DETAIL"));
+    }
+    
+    @Test
+    void testConcurrentReadsDuringUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        assertNotNull(registry.getTemplate("ORDER_DETAIL"));
+                    }
+                }));
+            }
+            for (int i = 0; i < 1_000; i++) {
+                registry.addTemplate("DYNAMIC_" + (i % 10), "content " + i);
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            assertEquals(16, registry.getTemplateCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
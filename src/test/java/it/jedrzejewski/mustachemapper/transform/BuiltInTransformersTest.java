@@ -0,0 +1,67 @@
+package it.jedrzejewski.mustachemapper.transform;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuiltInTransformersTest {
+    
+    private final TransformerRegistry registry = new TransformerRegistry();
+    
+    @Test
+    void testNumber() {
+        Transformer number = registry.resolve("number", Map.of());
+        
+        assertEquals(42L, number.transform("42"));
+        assertEquals(12.5, number.transform(" 12.50 "));
+        assertEquals(7, number.transform(7));
+        assertNull(number.transform("n/a"));
+        assertNull(number.transform(Map.of()));
+        
+        Transformer scaled = registry.resolve("number", Map.of("scale", 2));
+        assertEquals(new BigDecimal("1299.99"), scaled.transform(1299.989));
+        assertEquals(new BigDecimal("5.00"), scaled.transform("5"));
+    }
+    
+    @Test
+    void testBooleanAndString() {
+        Transformer bool = registry.resolve("boolean", null);
+        Transformer string = registry.resolve("string", null);
+        
+        assertEquals(true, bool.transform("TRUE"));
+        assertEquals(false, bool.transform(0));
+        assertNull(bool.transform("yes"));
+        assertEquals("15", string.transform(15));
+        assertEquals("0.00001", string.transform(new BigDecimal("1E-5")));
+        assertEquals(List.of(1), string.transform(List.of(1)));
+    }
+    
+    @Test
+    void testConcatSkipsNulls() {
+        Transformer concat = registry.resolve("concat", Map.of("separator", " "));
+        
+        assertEquals("John Doe", concat.transform(Arrays.asList("John", null, "Doe")));
+        assertEquals("AB", registry.resolve("concat", Map.of()).transform(List.of("A", "B")));
+    }
+    
+    @Test
+    void testRenameMapsAndListsOfMaps() {
+        Transformer rename = registry.resolve("rename", Map.of("fields", Map.of("orderId", "id")));
+        
+        assertEquals(Map.of("id", "ORD-1", "status", "new"), rename.transform(Map.of("orderId", "ORD-1", "status", "new")));
+        assertEquals(List.of(Map.of("id", "ORD-2")), rename.transform(List.of(Map.of("orderId", "ORD-2"))));
+    }
+    
+    @Test
+    void testInvalidOptionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve("number", Map.of("scale", "two")));
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve("concat", Map.of("glue", "-")));
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve("rename", Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve("boolean", Map.of("strict", true)));
+    }
+}
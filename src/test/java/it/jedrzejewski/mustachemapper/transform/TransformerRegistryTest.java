@@ -0,0 +1,36 @@
+package it.jedrzejewski.mustachemapper.transform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformerRegistryTest {
+    
+    @Test
+    void testDefaultTransformersAreRegistered() {
+        TransformerRegistry registry = new TransformerRegistry();
+        
+        assertTrue(registry.getTransformerNames().containsAll(Set.of("number", "boolean", "string", "concat", "rename")));
+    }
+    
+    @Test
+    void testRegisterAndResolveCustomTransformer() {
+        TransformerRegistry registry = new TransformerRegistry();
+        registry.register("upper", value -> value.toString().toUpperCase());
+        
+        assertTrue(registry.hasTransformer("upper"));
+        assertEquals("ABC", registry.resolve("upper", Map.of()).transform("abc"));
+    }
+    
+    @Test
+    void testUnknownTransformerAndInvalidRegistration() {
+        TransformerRegistry registry = new TransformerRegistry();
+        
+        assertThrows(IllegalArgumentException.class, () -> registry.getTransformer("missing"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(" ", value -> value));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("none", null));
+    }
+}
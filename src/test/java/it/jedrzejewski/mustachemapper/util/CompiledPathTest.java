@@ -0,0 +1,139 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPathTest {
+    
+    private final Map<String, Object> data = Map.of(
+        "user", Map.of("name", "John", "profile", Map.of("age", 30)),
+        "orders", List.of(
+            Map.of("id", "ORD-001", "tags", List.of("a", "b")),
+            Map.of("id", "ORD-002", "tags", List.of("c"))
+        ),
+        "odd.key", "dotted"
+    );
+    
+    @Test
+    void testParsesTypedSteps() {
+        CompiledPath path = CompiledPath.compile("$.orders[1].tags[*]");
+        
+        List<CompiledPath.Step> steps = path.getSteps();
+        assertEquals(4, steps.size());
+        assertEquals(CompiledPath.StepKind.FIELD, steps.get(0).getKind());
+        assertEquals("orders", steps.get(0).getName());
+        assertEquals(CompiledPath.StepKind.INDEX, steps.get(1).getKind());
+        assertEquals(1, steps.get(1).getIndex());
+        assertEquals(CompiledPath.StepKind.WILDCARD, steps.get(3).getKind());
+        assertTrue(path.endsWithWildcard());
+    }
+    
+    @Test
+    void testEvaluatesRepeatedly() {
+        CompiledPath path = CompiledPath.compile("$.user.profile.age");
+        
+        assertEquals(30, path.evaluate(data));
+        assertEquals(30, path.evaluate(data));
+        assertNull(path.evaluate(Map.of("user", "not an object")));
+    }
+    
+    @Test
+    void testTrailingWildcardSelectsArray() {
+        assertEquals(data.get("orders"), CompiledPath.compile("$.orders[*]").evaluate(data));
+        assertEquals(List.of("c"), CompiledPath.compile("$.orders[1].tags[*]").evaluate(data));
+    }
+    
+    @Test
+    void testChainedIndexesAndQuotedFields() {
+        Map<String, Object> matrix = Map.of("rows", List.of(List.of(1, 2), List.of(3, 4)));
+        
+        assertEquals(4, CompiledPath.compile("$.rows[1][1]").evaluate(matrix));
+        assertEquals("dotted", CompiledPath.compile("$['odd.key']").evaluate(data));
+    }
+    
+    @Test
+    void testRootPath() {
+        assertSame(data, CompiledPath.compile("$").evaluate(data));
+        assertSame(data, CompiledPath.compile("").evaluate(data));
+    }
+    
+    @Test
+    void testFilterSelectsMatchingElements() {
+        CompiledPath path = CompiledPath.compile("$.orders[?(@.id == 'ORD-002')]");
+        
+        assertTrue(path.isMultiValued());
+        assertEquals(CompiledPath.StepKind.FILTER, path.getStep(1).getKind());
+        assertEquals(List.of(Map.of("id", "ORD-002", "tags", List.of("c"))), path.evaluate(data));
+        assertEquals(List.of("c"), CompiledPath.compile("$.orders[?(@.id == 'ORD-002')].tags[*]").evaluate(data));
+        assertEquals(List.of(), path.evaluate(Map.of("orders", List.of())));
+        assertEquals(List.of(), path.evaluate(Map.of()));
+    }
+    
+    @Test
+    void testSlicesAndMidPathWildcards() {
+        Map<String, Object> numbers = Map.of("values", List.of(0, 1, 2, 3, 4, 5));
+        
+        assertEquals(List.of(1, 2, 3), CompiledPath.compile("$.values[1:4]").evaluate(numbers));
+        assertEquals(List.of(0, 2, 4), CompiledPath.compile("$.values[::2]").evaluate(numbers));
+        assertEquals(List.of(4, 5), CompiledPath.compile("$.values[-2:]").evaluate(numbers));
+        assertEquals(List.of(), CompiledPath.compile("$.values[10:20]").evaluate(numbers));
+        assertEquals(List.of("ORD-001", "ORD-002"), CompiledPath.compile("$.orders[*].id").evaluate(data));
+        assertEquals(List.of("a", "b", "c"), CompiledPath.compile("$.orders.*.tags[*]").evaluate(data));
+    }
+    
+    @Test
+    void testRecursiveDescent() {
+        Map<String, Object> tree = Map.of(
+            "id", 1,
+            "children", List.of(Map.of("id", 2, "children", List.of(Map.of("id", 3))), Map.of("id", 4))
+        );
+        
+        assertEquals(List.of(1, 2, 3, 4), CompiledPath.compile("$..id").evaluate(tree));
+        assertEquals(List.of(3), CompiledPath.compile("$..children[0].children[?(@.id > 2)].id").evaluate(tree));
+        assertEquals(List.of("ORD-001", "ORD-002"), CompiledPath.compile("$.orders..id").evaluate(data));
+        assertEquals(CompiledPath.StepKind.DESCENDANT, CompiledPath.compile("$..id").getStep(0).getKind());
+    }
+    
+    @Test
+    void testSingleValuedPathsAreNotMultiValued() {
+        assertFalse(CompiledPath.compile("$.orders[*]").isMultiValued());
+        assertFalse(CompiledPath.compile("$.orders[0].id").isMultiValued());
+        assertTrue(CompiledPath.compile("$.orders[*].tags[*]").isMultiValued());
+        assertEquals(List.of("a", "b", "c"), CompiledPath.compile("$.orders[*].tags[*]").evaluate(data));
+    }
+    
+    @Test
+    void testMatchesLinkEnclosingElements() {
+        CompiledPath path = CompiledPath.compile("$.orders[?(@.id != 'ORD-000')].tags[*]");
+        assertTrue(path.isNested());
+        
+        Iterator<CompiledPath.Match> matches = path.matches(data);
+        CompiledPath.Match first = matches.next();
+        assertEquals("a", first.getValue());
+        assertEquals("ORD-001", ((Map<?, ?>) first.getParent().getValue()).get("id"));
+        assertNull(first.getParent().getParent());
+        assertEquals("b", matches.next().getValue());
+        CompiledPath.Match last = matches.next();
+        assertEquals("ORD-002", ((Map<?, ?>) last.getParent().getValue()).get("id"));
+        assertFalse(matches.hasNext());
+        
+        assertFalse(CompiledPath.compile("$.orders[*]").isNested());
+        assertFalse(CompiledPath.compile("$.orders[?(@.id)]").isNested());
+        assertFalse(CompiledPath.compile("$..tags[*]").isNested());
+        assertThrows(IllegalStateException.class, () -> CompiledPath.compile("$..tags[*]").matches(data));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"$.orders[abc]", "$.orders[0", "$.user..", "$.user...name", "$.user.",
+        "$.orders[?(@.id ==)]", "$.orders[?(@.id == 'x')", "$.orders[?(@.tags[*] == 'a')]", "$.orders[1:2:0]", "$.orders[1:x]"})
+    void testMalformedPathsAreRejected(String path) {
+        assertThrows(IllegalArgumentException.class, () -> CompiledPath.compile(path));
+    }
+}
@@ -159,4 +159,14 @@ class MapPathExtractorTest {
         Object result = extractor.extractPath(complexData, "$.departments[0].employees[1].name");
         assertEquals("Bob", result);
     }
+    
+    @Test
+    void testFilterAndRecursivePaths() {
+        Object shipped = extractor.extractPath(testData, "$.orders[?(@.product == 'Mouse')].id");
+        assertEquals(List.of("ORD-002"), shipped);
+        
+        assertEquals(List.of("ORD-001", "ORD-002"), extractor.extractPath(testData, "$..id"));
+        assertEquals(List.of("ORD-002"), extractor.extractPath(testData, "$.orders[1:].id"));
+        assertSame(extractor.compile("$.orders[?(@.id)]"), extractor.compile("$.orders[?(@.id)]"));
+    }
 }
\ No newline at end of file
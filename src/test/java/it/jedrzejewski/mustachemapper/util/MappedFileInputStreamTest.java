@@ -0,0 +1,68 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileInputStreamTest {
+    
+    @Test
+    void testReadsAcrossRegions(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.write(tempDir.resolve("data.bin"), content);
+        
+        try (InputStream in = new MappedFileInputStream(file, 64)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[100];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                assertTrue(read <= 64);
+                out.write(chunk, 0, read);
+            }
+            assertArrayEquals(content, out.toByteArray());
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    @Test
+    void testSkipMarkAndReset(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[300];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.write(tempDir.resolve("data.bin"), content);
+        
+        try (InputStream in = new MappedFileInputStream(file, 64)) {
+            assertEquals(130, in.skip(130));
+            assertEquals(130, in.read());
+            in.mark(0);
+            assertEquals(100, in.skip(100));
+            assertEquals(231, in.read());
+            in.reset();
+            assertEquals(131, in.read());
+            assertEquals(168, in.available());
+            assertEquals(168, in.skip(500));
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    @Test
+    void testEmptyFile(@TempDir Path tempDir) throws Exception {
+        Path file = Files.write(tempDir.resolve("empty.bin"), new byte[0]);
+        
+        try (InputStream in = new MappedFileInputStream(file)) {
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[8], 0, 8));
+            assertEquals(0, in.available());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package it.jedrzejewski.mustachemapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathFilterTest {
+    
+    private final Map<String, Object> order = Map.of(
+        "status", "shipped",
+        "total", 120,
+        "discount", new BigDecimal("2.50"),
+        "express", false,
+        "customer", Map.of("tier", "gold"),
+        "lines", List.of("a", "b")
+    );
+    
+    private boolean test(String filter) {
+        return PathFilter.parse("$.orders[?" + filter + "]", filter).test(order);
+    }
+    
+    @Test
+    void testComparisons() {
+        assertTrue(test("(@.status == 'shipped')"));
+        assertTrue(test("(@.status != \"pending\")"));
+        assertTrue(test("(@.total > 100)"));
+        assertTrue(test("(@.total >= 120.0)"));
+        assertFalse(test("(@.total < 120)"));
+        assertTrue(test("(@.discount <= 2.5)"));
+        assertTrue(test("(@.express == false)"));
+        assertTrue(test("(@.customer.tier == 'gold')"));
+        assertTrue(test("(@['lines'][1] == 'b')"));
+        assertTrue(test("('gold' == @.customer.tier)"));
+    }
+    
+    @Test
+    void testExistenceAndLogic() {
+        assertTrue(test("(@.express)"));
+        assertFalse(test("(@.missing)"));
+        assertTrue(test("(!@.missing)"));
+        assertTrue(test("(@.missing == null)"));
+        assertTrue(test("(@.status == 'pending' || @.total > 100 && @.customer.tier == 'gold')"));
+        assertFalse(test("((@.status == 'pending' || @.total > 100) && @.express == true)"));
+    }
+    
+    @Test
+    void testMismatchedTypesAreNotOrdered() {
+        assertFalse(test("(@.status > 1)"));
+        assertFalse(test("(@.status < 1)"));
+        assertTrue(test("(@.status != 1)"));
+        assertFalse(test("(@.missing > 1)"));
+    }
+    
+    @Test
+    void testMalformedFiltersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> test("(@.status == )"));
+        assertThrows(IllegalArgumentException.class, () -> test("(@.status == 'x'"));
+        assertThrows(IllegalArgumentException.class, () -> test("('x')"));
+        assertThrows(IllegalArgumentException.class, () -> test("(@.status = 'x')"));
+    }
+}
@@ -0,0 +1,84 @@
+package it.jedrzejewski.mustachemapper.wrapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiSourceDataContextTest {
+    
+    @Test
+    void testPrimarySourceIsNotCopied() {
+        Map<String, Object> order = new HashMap<>(Map.of("orderId", "ORD-001"));
+        MultiSourceDataContext context = new MultiSourceDataContext();
+        context.setPrimaryDataSource(order);
+        
+        order.put("status", "shipped");
+        
+        assertEquals("ORD-001", context.get("orderId"));
+        assertEquals("shipped", context.get("status"));
+        assertTrue(context.containsKey("status"));
+    }
+    
+    @Test
+    void testNamedSourcesTakePrecedence() {
+        MultiSourceDataContext context = new MultiSourceDataContext();
+        context.setPrimaryDataSource(Map.of("name", "Laptop", "source2", "shadowed"));
+        context.addDataSource("source2", Map.of("name", "John"));
+        
+        assertEquals(Map.of("name", "John"), context.get("source2"));
+        assertEquals("Laptop", context.get("name"));
+        assertEquals(2, context.size());
+        assertEquals(Map.of("name", "Laptop", "source2", Map.of("name", "John")), context);
+    }
+    
+    @Test
+    void testSharedOverlayIsCopiedOnWrite() {
+        Map<String, Object> sharedSources = Map.of("source2", Map.of("name", "John"));
+        MultiSourceDataContext first = new MultiSourceDataContext(Map.of("orderId", "ORD-001"), sharedSources);
+        MultiSourceDataContext second = new MultiSourceDataContext(Map.of("orderId", "ORD-002"), sharedSources);
+        
+        first.addValue("extra", 1);
+        
+        assertEquals(1, first.get("extra"));
+        assertNull(second.get("extra"));
+        assertEquals(Map.of("name", "John"), second.get("source2"));
+        assertEquals(1, sharedSources.size());
+    }
+    
+    @Test
+    void testRemovalHidesPrimaryKeysWithoutModifyingTheSource() {
+        Map<String, Object> order = Map.of("orderId", "ORD-001", "status", "shipped");
+        MultiSourceDataContext context = new MultiSourceDataContext(order, Map.of("source2", Map.of("name", "John")));
+        
+        assertEquals("shipped", context.remove("status"));
+        assertEquals(Map.of("name", "John"), context.remove("source2"));
+        assertNull(context.remove("missing"));
+        
+        assertFalse(context.containsKey("status"));
+        assertNull(context.get("status"));
+        assertEquals(1, context.size());
+        assertEquals(Map.of("orderId", "ORD-001"), context);
+        assertEquals("shipped", order.get("status"));
+        
+        context.put("status", "delivered");
+        assertEquals(Map.of("orderId", "ORD-001", "status", "delivered"), context);
+        
+        context.clear();
+        assertTrue(context.isEmpty());
+        assertEquals(2, order.size());
+    }
+    
+    @Test
+    void testEntryIteratorRemovesFromTheContext() {
+        MultiSourceDataContext context = new MultiSourceDataContext(
+            Map.of("orderId", "ORD-001", "status", "shipped", "source2", "shadowed"), Map.of("source2", Map.of("name", "John")));
+        
+        context.entrySet().removeIf(entry -> !entry.getKey().equals("orderId"));
+        
+        assertEquals(Map.of("orderId", "ORD-001"), context);
+        assertEquals(Map.of("orderId", "ORD-001").hashCode(), context.hashCode());
+    }
+}
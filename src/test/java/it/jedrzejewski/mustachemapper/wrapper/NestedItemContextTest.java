@@ -0,0 +1,41 @@
+package it.jedrzejewski.mustachemapper.wrapper;
+
+import it.jedrzejewski.mustachemapper.util.CompiledPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NestedItemContextTest {
+
+    private final Map<String, Object> data = Map.of("customers", List.of(
+        Map.of("id", "C1", "customerName", "Ann", "orders", List.of(Map.of("id", "O1", "total", 10))),
+        Map.of("id", "C2", "customerName", "Bob", "tags", List.of("vip"))
+    ));
+
+    @Test
+    void testMatchFieldsShadowEnclosingFields() {
+        NestedItemContext context = new NestedItemContext(CompiledPath.compile("$.customers[*].orders[*]").matches(data).next());
+
+        assertEquals("O1", context.get("id"));
+        assertEquals(10, context.get("total"));
+        assertEquals("Ann", context.get("customerName"));
+        assertTrue(context.containsKey("customerName"));
+        assertFalse(context.containsKey("missing"));
+        assertEquals("C1", ((Map<?, ?>) context.get(NestedItemContext.PARENT)).get("id"));
+        assertEquals("O1", context.entrySet().stream().filter(e -> e.getKey().equals("id")).findFirst().orElseThrow().getValue());
+    }
+
+    @Test
+    void testScalarMatchIsExposedAsValue() {
+        Iterator<CompiledPath.Match> matches = CompiledPath.compile("$.customers[*].tags[*]").matches(data);
+        NestedItemContext context = new NestedItemContext(matches.next());
+
+        assertEquals("vip", context.get(NestedItemContext.VALUE));
+        assertEquals("Bob", context.get("customerName"));
+        assertFalse(matches.hasNext());
+    }
+}